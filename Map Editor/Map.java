@@ -8,6 +8,7 @@ import java.io.BufferedWriter;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.*;
+import java.util.Arrays;
 
 public class Map
 {
@@ -20,7 +21,7 @@ public class Map
 	public static final int WALL_NORTH = 7;
 	public static final int WALL_CAP = 8;
 	
-	public static final int MAX_OBJECTS = 200;
+	public static final int INITIAL_CAPACITY = 200;
 	public static final int SIZE = 3072;
 	
 	private BufferedImage backdrop;
@@ -35,13 +36,13 @@ public class Map
 	public Map(GamePlay parent, String file) throws IOException
 	{
 		backdrop = parent.getImage("Environment/backdrop.jpg");
-		objects = new Sprite[MAX_OBJECTS];
-		typeList = new int[MAX_OBJECTS];
 		gamePlay = parent;
 		
 		BufferedReader infile = new BufferedReader(new FileReader(file));
 		
 		numObjects = Integer.parseInt(infile.readLine());
+		objects = new Sprite[Math.max(numObjects, INITIAL_CAPACITY)];
+		typeList = new int[objects.length];
 		
 		for (int i = 0; i < numObjects; i++)
 		{
@@ -93,6 +94,12 @@ public class Map
 	
 	public void add(int type, int x, int y)
 	{
+		if (numObjects == objects.length)
+		{
+			objects = Arrays.copyOf(objects, numObjects*2);
+			typeList = Arrays.copyOf(typeList, numObjects*2);
+		}
+		
 		if (type == TREE)
 			objects[numObjects] = new Sprite(gamePlay.getImage("Environment/tree.png"), x, y);
 		else if (type == BUSH)
@@ -1,4 +1,6 @@
 #!/bin/bash
-java -Xms64M -Xmx400M -jar ne.jar
+# the SIMD unit kernels need the Vector API module, which only newer JVMs have
+VECTOR=$(java --list-modules 2>/dev/null | grep -o "^jdk.incubator.vector")
+java -Xms64M -Xmx400M ${VECTOR:+--add-modules $VECTOR} -jar ne.jar
 
 
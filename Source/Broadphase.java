@@ -0,0 +1,17 @@
+/*
+ * Name of code: Broadphase.java
+ * Description:  Interface for finding units near each other.  A broadphase takes a list
+ *				 of boxes and quickly finds the pairs that overlap, so local avoidance
+ *				 only looks at units that are close enough to matter.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public interface Broadphase
+{
+	// findPairs()
+	// Boxes are given as parallel arrays of edges.  Every pair of boxes that overlap
+	// (edges that only touch don't count) is added to pairs exactly once, as (i, j)
+	// with i < j.
+	public void findPairs(double left[], double top[], double right[], double bottom[], int count, PairList pairs);
+}
@@ -0,0 +1,110 @@
+/*
+ * Name of code: CollisionMask.java
+ * Description:  Which pixels of an object's image are solid, one bit per pixel packed
+ *				 64 to a long, so lakes, ponds and bushes can be collided with by their
+ *				 actual shape instead of their whole rectangle.  A mask is built once per
+ *				 object type from the image's alpha channel (the magenta mask colour
+ *				 counts as see-through too, for images loaded without it masked out), and
+ *				 a rectangle is tested against it a word at a time.  Images with no solid
+ *				 pixels at all are treated as solid all over, so collision falls back to
+ *				 the rectangle.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.awt.image.BufferedImage;
+
+public class CollisionMask
+{
+	// constants
+	// pixels at least this opaque are solid
+	public static final int ALPHA_THRESHOLD = 128;
+	public static final int MASK_COLOR = 0xFF00FF;
+
+	private int width;
+	private int height;
+	private int wordsPerRow;
+	private long bits[];
+	private boolean solid;
+
+	// CollisionMask() - class constructor
+	public CollisionMask(BufferedImage image)
+	{
+		width = image.getWidth();
+		height = image.getHeight();
+		wordsPerRow = (width + 63) >>> 6;
+		bits = new long[wordsPerRow*height];
+
+		int row[] = new int[width];
+		boolean any = false;
+
+		for (int y = 0; y < height; y++)
+		{
+			image.getRGB(0, y, width, 1, row, 0, width);
+
+			for (int x = 0; x < width; x++)
+				if ((row[x] >>> 24) >= ALPHA_THRESHOLD && (row[x] & 0xFFFFFF) != MASK_COLOR)
+				{
+					bits[y*wordsPerRow + (x >>> 6)] |= 1L << (x & 63);
+					any = true;
+				}
+		}
+
+		solid = !any;
+	}
+
+	// overlaps()
+	// Returns true if any solid pixel is inside the rectangle from left,top up to (but not
+	// including) right,bottom, in the image's own coordinates.  The parts of the
+	// rectangle off the image are ignored.
+	public boolean overlaps(int left, int top, int right, int bottom)
+	{
+		left = Math.max(left, 0);
+		top = Math.max(top, 0);
+		right = Math.min(right, width);
+		bottom = Math.min(bottom, height);
+
+		if (left >= right || top >= bottom)
+			return false;
+		if (solid)
+			return true;
+
+		// the words the rectangle covers, and the bits of the first and last that are in it
+		int firstWord = left >>> 6;
+		int lastWord = (right - 1) >>> 6;
+		long firstBits = -1L << (left & 63);
+		long lastBits = -1L >>> (63 - ((right - 1) & 63));
+
+		if (firstWord == lastWord)
+			firstBits &= lastBits;
+
+		for (int y = top; y < bottom; y++)
+		{
+			int start = y*wordsPerRow;
+
+			if ((bits[start + firstWord] & firstBits) != 0)
+				return true;
+			if (firstWord == lastWord)
+				continue;
+
+			for (int w = firstWord + 1; w < lastWord; w++)
+				if (bits[start + w] != 0)
+					return true;
+
+			if ((bits[start + lastWord] & lastBits) != 0)
+				return true;
+		}
+
+		return false;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	// returns true if the mask is solid all over
+	public boolean isSolid()
+	{
+		return solid;
+	}
+}
@@ -0,0 +1,301 @@
+/*
+ * Name of code: CooperativePlanner.java
+ * Description:  Cooperative pathfinding for group moves (windowed cooperative A*).
+ *				 Units are planned one at a time through space and time - as well as
+ *				 stepping to a neighbouring cell a unit can wait where it is - and each
+ *				 plan is written into a shared ReservationTable, so the units planned
+ *				 after it take turns through gaps instead of meeting in them.  Only the
+ *				 first WINDOW slots are planned around other units; the rest of the way
+ *				 follows the shortest route.  A plan comes back as a route of cells and the
+ *				 tick the unit should set off for each one.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.util.Arrays;
+
+public class CooperativePlanner
+{
+	// constants
+	// length of a time slot in ticks
+	public static final int SLOT_TICKS = 5;
+
+	// how many slots ahead units are planned around each other
+	public static final int WINDOW = 96;
+
+	// searches that look at more states than this give up, and the unit is routed on
+	// its own
+	public static final int MAX_EXPANSIONS = 10000;
+
+	private static final int NUM_CELLS = PathGrid.CELLS*PathGrid.CELLS;
+
+	private PathGrid grid;
+	private ReservationTable reservations;
+
+	// search bookkeeping, by state (slot*NUM_CELLS + cell).  A state belongs to the
+	// current search if its searchId matches.
+	private PathHeap open;
+	private int parents[];
+	private int searchIds[];
+	private boolean closed[];
+	private int searchId;
+	
+	// the cells other units have during the window, by slot - looked up far too often
+	// during a search to go to the reservation table each time
+	private boolean taken[];
+
+	// departure ticks for the last route planned
+	private long schedule[];
+
+	// CooperativePlanner() - class constructor
+	public CooperativePlanner(PathGrid pathGrid)
+	{
+		grid = pathGrid;
+		reservations = new ReservationTable();
+		open = new PathHeap(1024);
+		parents = new int[NUM_CELLS*(WINDOW + 1)];
+		searchIds = new int[NUM_CELLS*(WINDOW + 1)];
+		closed = new boolean[NUM_CELLS*(WINDOW + 1)];
+		taken = new boolean[NUM_CELLS*(WINDOW + 1)];
+		schedule = new long[0];
+	}
+
+	// plan()
+	// Plans the unit's way from startX,startY to goalX,goalY starting on the given tick
+	// and reserves it.  Returns the cells to walk through (see getSchedule() for when),
+	// or null if the goal can't be reached or the search gave up.
+	public int[] plan(Unit unit, int startX, int startY, int goalX, int goalY, long tick)
+	{
+		long baseSlot = tick / SLOT_TICKS;
+
+		// whatever the unit was doing before no longer holds
+		reservations.release(unit, baseSlot);
+
+		int start = grid.findNearestWalkable(grid.getCell(startX, startY), -1);
+		if (start < 0)
+			return null;
+
+		int goal = grid.findNearestWalkable(grid.getCell(goalX, goalY), grid.getComponent(start));
+		if (goal < 0)
+			return null;
+
+		// the distance to the goal around obstacles guides the search and gives the rest of
+		// the way past the window
+		int goals[] = { goal };
+		FlowField distances = new FlowField(grid, goals, 1);
+		if (!distances.reaches(start))
+			return null;
+
+		// slots a unit takes to cross a cell straight and diagonally
+		double ticksPerCell = PathGrid.CELL_SIZE / (unit.getSpeed()*GamePlay.TICK_LENGTH);
+		int straightSlots = Math.max(1, (int)Math.ceil(ticksPerCell / SLOT_TICKS));
+		int diagonalSlots = Math.max(1, (int)Math.ceil(ticksPerCell*Pathfinder.DIAGONAL/Pathfinder.STRAIGHT / SLOT_TICKS));
+
+		Arrays.fill(taken, false);
+		reservations.mark(taken, baseSlot, WINDOW + 1, unit);
+		
+		int end = search(start, goal, distances, straightSlots, diagonalSlots);
+		if (end < 0)
+			return null;
+
+		return buildRoute(unit, end, goal, baseSlot, distances);
+	}
+
+	// search()
+	// A* through cells and slots.  Returns the state the unit reaches the goal in (free
+	// for the rest of the window), the first state at the end of the window, or -1.
+	private int search(int start, int goal, FlowField distances, int straightSlots, int diagonalSlots)
+	{
+		searchId++;
+		open.clear();
+
+		searchIds[start] = searchId;
+		closed[start] = false;
+		parents[start] = -1;
+		open.add(start, getPriority(0, estimate(start, distances, straightSlots)));
+
+		int expansions = 0;
+
+		while (!open.isEmpty())
+		{
+			int state = open.pop();
+			if (closed[state])
+				continue;
+
+			closed[state] = true;
+			int slot = state / NUM_CELLS;
+			int cell = state % NUM_CELLS;
+
+			if (slot == WINDOW)
+				return state;
+			if (cell == goal && isClearFrom(goal, slot, WINDOW))
+				return state;
+			if (++expansions > MAX_EXPANSIONS)
+				return -1;
+
+			int cx = cell % PathGrid.CELLS;
+			int cy = cell / PathGrid.CELLS;
+
+			for (int dy = -1; dy <= 1; dy++)
+				for (int dx = -1; dx <= 1; dx++)
+				{
+					// staying put is waiting a slot
+					int next = cell;
+					int duration = 1;
+
+					if (dx != 0 || dy != 0)
+					{
+						if (!grid.canStep(cx, cy, dx, dy))
+							continue;
+
+						next = (cy + dy)*PathGrid.CELLS + cx + dx;
+						duration = dx != 0 && dy != 0 ? diagonalSlots : straightSlots;
+					}
+
+					int arrival = Math.min(WINDOW, slot + duration);
+
+					// the unit is partly in both cells until it arrives
+					boolean free = true;
+					for (int s = slot + 1; s <= arrival && free; s++)
+						free = isClear(next, s) && isClear(cell, s);
+					if (!free)
+						continue;
+
+					int nextState = arrival*NUM_CELLS + next;
+					if (searchIds[nextState] == searchId)
+						continue;
+
+					searchIds[nextState] = searchId;
+					closed[nextState] = false;
+					parents[nextState] = state;
+					open.add(nextState, getPriority(arrival, estimate(next, distances, straightSlots)));
+				}
+		}
+
+		return -1;
+	}
+
+	// buildRoute()
+	// Turns the states leading to end into a route and schedule, reserving each state for
+	// the unit.  A unit that stops at the goal keeps it for the rest of the window, and a
+	// search cut off by the window finishes along the shortest route.
+	private int[] buildRoute(Unit unit, int end, int goal, long baseSlot, FlowField distances)
+	{
+		int length = 0;
+		for (int state = end; state >= 0; state = parents[state])
+			length++;
+
+		int states[] = new int[length];
+		for (int state = end, i = length - 1; state >= 0; state = parents[state], i--)
+			states[i] = state;
+
+		// count the cells in the route - the cells moved into, then the shortest route on
+		// from the end of the window
+		int endCell = end % NUM_CELLS;
+		int count = 0;
+		for (int i = 1; i < length; i++)
+			if (states[i] % NUM_CELLS != states[i - 1] % NUM_CELLS)
+				count++;
+		for (int cell = endCell; cell != goal && distances.getNext(cell) >= 0; cell = distances.getNext(cell))
+			count++;
+
+		int route[] = new int[count];
+		schedule = new long[count];
+		count = 0;
+
+		for (int i = 1; i < length; i++)
+		{
+			int fromCell = states[i - 1] % NUM_CELLS;
+			int fromSlot = states[i - 1] / NUM_CELLS;
+			int cell = states[i] % NUM_CELLS;
+			int slot = states[i] / NUM_CELLS;
+
+			for (int s = fromSlot; s <= slot; s++)
+				reservations.reserve(fromCell, baseSlot + s, unit);
+
+			if (cell != fromCell)
+			{
+				for (int s = fromSlot + 1; s <= slot; s++)
+					reservations.reserve(cell, baseSlot + s, unit);
+
+				route[count] = cell;
+				schedule[count] = (baseSlot + fromSlot)*SLOT_TICKS;
+				count++;
+			}
+		}
+
+		int endSlot = end / NUM_CELLS;
+		if (endCell == goal)
+			for (int s = endSlot; s <= WINDOW; s++)
+				reservations.reserve(goal, baseSlot + s, unit);
+
+		// past the window the unit goes as soon as it gets there
+		for (int cell = endCell; cell != goal && distances.getNext(cell) >= 0; cell = distances.getNext(cell))
+		{
+			route[count] = distances.getNext(cell);
+			schedule[count] = 0;
+			count++;
+		}
+
+		return route;
+	}
+
+	// isClear()
+	// Returns true if nobody else has the cell or the cells beside it during the slot
+	// (counted from the start of the window).  Units are as wide as a cell, so units in
+	// cells side by side would be touching.
+	private boolean isClear(int cell, int slot)
+	{
+		int cx = cell % PathGrid.CELLS;
+		int cy = cell / PathGrid.CELLS;
+		int i = slot*NUM_CELLS + cell;
+		
+		return !taken[i] &&
+			   (cx == 0 || !taken[i - 1]) &&
+			   (cx == PathGrid.CELLS - 1 || !taken[i + 1]) &&
+			   (cy == 0 || !taken[i - PathGrid.CELLS]) &&
+			   (cy == PathGrid.CELLS - 1 || !taken[i + PathGrid.CELLS]);
+	}
+	
+	// isClearFrom()
+	// returns true if the cell is clear (see isClear()) from slot first through slot last
+	private boolean isClearFrom(int cell, int first, int last)
+	{
+		for (int s = first; s <= last; s++)
+			if (!isClear(cell, s))
+				return false;
+		
+		return true;
+	}
+	
+	// getPriority()
+	// Orders states by estimated arrival at the goal, and those that tie by how far along
+	// they are, so the search follows one promising path rather than widening out
+	private int getPriority(int slot, int estimate)
+	{
+		return (slot + estimate)*(WINDOW + 1) + WINDOW - slot;
+	}
+
+	// estimate()
+	// returns the least number of slots from the cell to the goal
+	private int estimate(int cell, FlowField distances, int straightSlots)
+	{
+		return distances.getCost(cell)*straightSlots / Pathfinder.STRAIGHT;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	// returns the tick the unit should set off for each cell of the last route planned.
+	// Cells it can go on to as soon as it gets there have 0.
+	public long[] getSchedule()
+	{
+		return schedule;
+	}
+
+	public ReservationTable getReservations()
+	{
+		return reservations;
+	}
+}
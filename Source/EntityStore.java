@@ -0,0 +1,204 @@
+/*
+ * Name of code: EntityStore.java
+ * Description:  The state of every unit in the game, kept as components - parallel
+ *				 arrays indexed by entity - instead of in fields spread over Unit
+ *				 objects, so the per-tick work that touches every unit (the systems at
+ *				 the bottom) runs over contiguous memory.  The components are position,
+ *				 movement (what LocalAvoidance works with), health, combat, order state
+ *				 and special ability.  A Unit is the entity's handle: it keeps the
+ *				 behaviour that is different for every unit (routes, animation,
+ *				 projectiles) and reads and writes its components here.  Entities are
+ *				 numbered in the order they are created, which is also the sprite ID of
+ *				 the unit, so collision callbacks can find the unit with getUnit().
+ *				 Component arrays are reallocated as entities are added, so they mustn't
+ *				 be held on to across create().
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.util.Arrays;
+
+public class EntityStore
+{
+	// constants
+	public static final int INITIAL_CAPACITY = 64;
+
+	private int count;
+
+	// the unit each entity belongs to
+	private Unit units[] = new Unit[INITIAL_CAPACITY];
+
+	// position - sprite top left corner, now and at the start of the tick
+	double x[] = new double[INITIAL_CAPACITY];
+	double y[] = new double[INITIAL_CAPACITY];
+	double previousX[] = new double[INITIAL_CAPACITY];
+	double previousY[] = new double[INITIAL_CAPACITY];
+
+	// movement - the velocity the unit wants this tick, the largest step it can take and
+	// the velocity LocalAvoidance gave it, all in pixels per tick, and how long it has
+	// been held up (see applyVelocities())
+	boolean steering[] = new boolean[INITIAL_CAPACITY];
+	double preferredX[] = new double[INITIAL_CAPACITY];
+	double preferredY[] = new double[INITIAL_CAPACITY];
+	double maxStep[] = new double[INITIAL_CAPACITY];
+	double velocityX[] = new double[INITIAL_CAPACITY];
+	double velocityY[] = new double[INITIAL_CAPACITY];
+	int blockedTicks[] = new int[INITIAL_CAPACITY];
+	int squeezeTicks[] = new int[INITIAL_CAPACITY];
+
+	// health
+	int hp[] = new int[INITIAL_CAPACITY];
+	int maxHp[] = new int[INITIAL_CAPACITY];
+	boolean alive[] = new boolean[INITIAL_CAPACITY];
+	boolean friendly[] = new boolean[INITIAL_CAPACITY];
+
+	// combat - delay counts up to attackDelay between attacks, and swingTime counts the
+	// milliseconds an attack has been swinging for
+	int power[] = new int[INITIAL_CAPACITY];
+	int attackDelay[] = new int[INITIAL_CAPACITY];
+	int delay[] = new int[INITIAL_CAPACITY];
+	boolean swinging[] = new boolean[INITIAL_CAPACITY];
+	long swingTime[] = new long[INITIAL_CAPACITY];
+
+	// order state - the Unit state constants, and the state to go back to after pathing
+	int state[] = new int[INITIAL_CAPACITY];
+	int previousState[] = new int[INITIAL_CAPACITY];
+
+	// special ability - Unit.NONE, HEAL or LIGHTNING, and the ticks until it can be used
+	int specialType[] = new int[INITIAL_CAPACITY];
+	int specialCooldown[] = new int[INITIAL_CAPACITY];
+
+	// create()
+	// Adds an entity for the unit and returns it.  Its components start out zeroed.
+	public int create(Unit unit)
+	{
+		if (count == units.length)
+			allocate(count*2);
+
+		units[count] = unit;
+		return count++;
+	}
+
+	// allocate()
+	// Grows every component array to the given capacity, keeping what's in them
+	private void allocate(int capacity)
+	{
+		units = Arrays.copyOf(units, capacity);
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		previousX = Arrays.copyOf(previousX, capacity);
+		previousY = Arrays.copyOf(previousY, capacity);
+		steering = Arrays.copyOf(steering, capacity);
+		preferredX = Arrays.copyOf(preferredX, capacity);
+		preferredY = Arrays.copyOf(preferredY, capacity);
+		maxStep = Arrays.copyOf(maxStep, capacity);
+		velocityX = Arrays.copyOf(velocityX, capacity);
+		velocityY = Arrays.copyOf(velocityY, capacity);
+		blockedTicks = Arrays.copyOf(blockedTicks, capacity);
+		squeezeTicks = Arrays.copyOf(squeezeTicks, capacity);
+		hp = Arrays.copyOf(hp, capacity);
+		maxHp = Arrays.copyOf(maxHp, capacity);
+		alive = Arrays.copyOf(alive, capacity);
+		friendly = Arrays.copyOf(friendly, capacity);
+		power = Arrays.copyOf(power, capacity);
+		attackDelay = Arrays.copyOf(attackDelay, capacity);
+		delay = Arrays.copyOf(delay, capacity);
+		swinging = Arrays.copyOf(swinging, capacity);
+		swingTime = Arrays.copyOf(swingTime, capacity);
+		state = Arrays.copyOf(state, capacity);
+		previousState = Arrays.copyOf(previousState, capacity);
+		specialType = Arrays.copyOf(specialType, capacity);
+		specialCooldown = Arrays.copyOf(specialCooldown, capacity);
+	}
+
+	// ******
+	// Systems
+	// ******
+
+	// savePositions()
+	// remembers every entity's position at the start of a tick, so rendering can blend
+	// between the previous and current tick
+	public void savePositions()
+	{
+		System.arraycopy(x, 0, previousX, 0, count);
+		System.arraycopy(y, 0, previousY, 0, count);
+	}
+
+	// updateTimers()
+	// Counts down special ability cooldowns and counts up attack delays and swings, once
+	// every unit has acted for the tick
+	public void updateTimers(long elapsedTime)
+	{
+		for (int e = 0; e < count; e++)
+		{
+			if (specialCooldown[e] > 0)
+				specialCooldown[e]--;
+			if (delay[e] < attackDelay[e])
+				delay[e]++;
+			if (swinging[e])
+				swingTime[e] += elapsedTime;
+		}
+	}
+
+	// applyVelocities()
+	// Moves every living entity by the velocity LocalAvoidance picked for it this tick,
+	// keeping count of how long each has been held up.  Held up means making next to no
+	// headway the way the unit wants to go - being shoved sideways or back doesn't count.
+	// A unit moving and held up for Unit.SQUEEZE_TICKS squeezes through the other units
+	// for as long, and squeezing past doesn't count as getting anywhere, since the unit
+	// can be pushed straight back.  Sprites are moved along with their entities, so
+	// collision with the map sees where each unit came from.
+	public void applyVelocities()
+	{
+		for (int e = 0; e < count; e++)
+		{
+			double slow = maxStep[e] / 10;
+			double preferred = Math.sqrt(preferredX[e]*preferredX[e] + preferredY[e]*preferredY[e]);
+
+			if (squeezeTicks[e] > 0)
+				squeezeTicks[e]--;
+			else if (steering[e] && preferred >= slow && velocityX[e]*preferredX[e] + velocityY[e]*preferredY[e] < slow*preferred)
+			{
+				blockedTicks[e]++;
+				if (blockedTicks[e] % Unit.SQUEEZE_TICKS == 0 && state[e] == Unit.MOVE)
+					squeezeTicks[e] = Unit.SQUEEZE_TICKS;
+			}
+			else
+				blockedTicks[e] = 0;
+
+			if (alive[e] && (velocityX[e] != 0 || velocityY[e] != 0))
+			{
+				x[e] += velocityX[e];
+				y[e] += velocityY[e];
+				units[e].sprite.move(velocityX[e], velocityY[e]);
+			}
+		}
+	}
+
+	// syncPositions()
+	// Picks up the positions of sprites that map collision moved back
+	public void syncPositions()
+	{
+		for (int e = 0; e < count; e++)
+		{
+			x[e] = units[e].sprite.getX();
+			y[e] = units[e].sprite.getY();
+		}
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	// returns the number of entities
+	public int getCount()
+	{
+		return count;
+	}
+
+	// returns the unit an entity (or a unit's sprite ID) belongs to
+	public Unit getUnit(int entity)
+	{
+		return units[entity];
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Name of code: FlowField.java
+ * Description:  Flow field over a PathGrid for group orders.  One search outward from
+ *				 the goal cells gives every cell on the map the cost of getting to the
+ *				 goal and the neighbouring cell to step to next, so any number of units
+ *				 can find their way by looking up the cell they are standing in.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class FlowField
+{
+	private PathGrid grid;
+
+	// cost to the nearest goal cell and the next cell toward it, -1 where the goal
+	// can't be reached
+	private int costs[];
+	private int next[];
+
+	// FlowField() - class constructor
+	// Searches outward from every goal cell at once.  Goal cells that are blocked are
+	// swapped for the closest walkable cell.
+	public FlowField(PathGrid pathGrid, int goals[], int numGoals)
+	{
+		grid = pathGrid;
+		costs = new int[PathGrid.CELLS*PathGrid.CELLS];
+		next = new int[PathGrid.CELLS*PathGrid.CELLS];
+		boolean closed[] = new boolean[PathGrid.CELLS*PathGrid.CELLS];
+		PathHeap heap = new PathHeap(PathGrid.CELLS*PathGrid.CELLS);
+
+		for (int c = 0; c < PathGrid.CELLS*PathGrid.CELLS; c++)
+		{
+			costs[c] = -1;
+			next[c] = -1;
+		}
+
+		for (int i = 0; i < numGoals; i++)
+		{
+			int goal = grid.findNearestWalkable(goals[i], -1);
+			if (goal >= 0 && costs[goal] != 0)
+			{
+				costs[goal] = 0;
+				heap.add(goal, 0);
+			}
+		}
+
+		while (!heap.isEmpty())
+		{
+			int cell = heap.pop();
+			if (closed[cell])
+				continue;
+
+			closed[cell] = true;
+			int cx = cell % PathGrid.CELLS;
+			int cy = cell / PathGrid.CELLS;
+
+			// steps cost the same both ways, so a neighbour reached from this cell steps
+			// back to it on the way to the goal
+			for (int dy = -1; dy <= 1; dy++)
+				for (int dx = -1; dx <= 1; dx++)
+				{
+					if ((dx == 0 && dy == 0) || !grid.canStep(cx, cy, dx, dy))
+						continue;
+
+					int neighbour = (cy + dy)*PathGrid.CELLS + cx + dx;
+					int cost = costs[cell] + grid.getStepCost(cx, cy, dx, dy);
+
+					if (closed[neighbour] || (costs[neighbour] >= 0 && costs[neighbour] <= cost))
+						continue;
+
+					costs[neighbour] = cost;
+					next[neighbour] = cell;
+					heap.add(neighbour, cost);
+				}
+		}
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	// returns true if the goal can be reached from the cell
+	public boolean reaches(int cell)
+	{
+		return costs[cell] >= 0;
+	}
+
+	// returns the cost of getting from the cell to the nearest goal cell, or -1 if it
+	// can't be reached
+	public int getCost(int cell)
+	{
+		return costs[cell];
+	}
+
+	// returns the cell to step to from the cell, or -1 at a goal or where the goal can't
+	// be reached
+	public int getNext(int cell)
+	{
+		return next[cell];
+	}
+
+	public PathGrid getGrid()
+	{
+		return grid;
+	}
+}
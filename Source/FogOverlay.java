@@ -0,0 +1,76 @@
+/*
+ * Name of code: FogOverlay.java
+ * Description:  Draws the fog of war as a single image.  Each fog cell is one pixel of a
+ *				 small alpha mask - opaque where the map is unexplored, half covered where
+ *				 it is explored, and clear where it is visible.  The mask is only changed
+ *				 when a fog cell changes, and each frame it is stretched over the map in
+ *				 one smoothed draw clipped to the view.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+
+public class FogOverlay
+{
+	// constants
+	public static final int CELLS = Map.SIZE / GamePlay.FOG_SIZE;
+
+	private BufferedImage mask;
+	private int colors[];
+
+	// FogOverlay() - class constructor
+	// The shade for unexplored and explored cells comes from how much of the fogThick and
+	// fogThin tiles is covered.  Every cell starts unexplored.
+	public FogOverlay(BufferedImage fogThick, BufferedImage fogThin)
+	{
+		colors = new int[3];
+		colors[0] = getCoverage(fogThick) << 24;
+		colors[1] = getCoverage(fogThin) << 24;
+		colors[2] = 0;
+
+		mask = new BufferedImage(CELLS, CELLS, BufferedImage.TYPE_INT_ARGB);
+
+		for (int x = 0; x < CELLS; x++)
+			for (int y = 0; y < CELLS; y++)
+				mask.setRGB(x, y, colors[0]);
+	}
+
+	// set()
+	// Changes the shade of one fog cell: 0 - unexplored, 1 - explored, 2 - visible
+	public void set(int x, int y, int value)
+	{
+		mask.setRGB(x, y, colors[value]);
+	}
+
+	// render()
+	// Stretches the mask over the whole map.  Only the part inside the view is actually
+	// drawn, and smoothing blends the edges between cells.
+	public void render(Graphics2D g, Point camera)
+	{
+		Shape clip = g.getClip();
+		Object interpolation = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+
+		g.clipRect(0, 0, Map.VIEW_WIDTH, Map.VIEW_HEIGHT);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(mask, -camera.x, -camera.y, Map.SIZE, Map.SIZE, null);
+
+		g.setClip(clip);
+		if (interpolation != null)
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+	}
+
+	// getCoverage()
+	// returns how much of the image is opaque, from 0 (none) to 255 (all of it)
+	private int getCoverage(BufferedImage image)
+	{
+		long covered = 0;
+
+		for (int x = 0; x < image.getWidth(); x++)
+			for (int y = 0; y < image.getHeight(); y++)
+				covered += image.getRGB(x, y) >>> 24;
+
+		return (int)(covered / ((long)image.getWidth() * image.getHeight()));
+	}
+}
@@ -22,14 +22,19 @@ import java.io.FileReader;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class GamePlay extends GameObject
 {
-	// array limits
-	public static final int MAX_UNITS = 50;
-	public static final int MAX_POWERUPS = 10;
+	// room for units and powerups before their arrays have to grow
+	public static final int INITIAL_CAPACITY = 16;
 	public static final int FOG_SIZE = 96;
 	
+	// the world is simulated in fixed ticks no matter how fast the screen is drawn
+	public static final int TICK_RATE = 30;
+	public static final int TICK_LENGTH = 1000 / TICK_RATE;
+	public static final int MAX_TICKS_PER_FRAME = 5;
+	
 	// difficulty levels
 	public static final int EASY = 0;
 	public static final int NORMAL = 1;
@@ -46,14 +51,24 @@ public class GamePlay extends GameObject
 	private Map		map;
 	private Point	camera;
 	private int		fog[][];
+	private int		fogCount[][];
+	private int		fogMaskX[];
+	private int		fogMaskY[];
 	
 	private PauseMenu pauseMenu;
 	
-	private CollisionManager unitCollision;
+	private LocalAvoidance localAvoidance;
+	private Pathfinder pathfinder;
+	private PathService pathService;
+	private CooperativePlanner cooperativePlanner;
 	private CollisionManager objectCollision;
 	private CollisionManager powerupCollision;
 	private SpriteGroup unitGroup;
 	private SpriteGroup powerupGroup;
+	private UnitGrid friendlyGrid;
+	private UnitGrid enemyGrid;
+	private EntityStore entities;
+	private UnitKernels kernels;
 	public Powerup powerups[];
 	public Unit friendlyUnits[];
 	public Unit enemyUnits[];
@@ -64,9 +79,7 @@ public class GamePlay extends GameObject
 	private int numPowerups;
 	
 	// fog of war graphics
-	private BufferedImage fogThick;
-	private BufferedImage fogThin;
-	private BufferedImageOp op;
+	private FogOverlay fogOverlay;
 	
 	private int status;
 	private int score;
@@ -75,13 +88,26 @@ public class GamePlay extends GameObject
 	private boolean oneHitKills;
 	private boolean paused;
 	private int level;
+	private boolean headless;
+	private long tickTime;
+	private long tick;
+	private double interpolation;
 	
 	// GamePlay() - class constructor
 	// Initializes the GameObject and sets the pointer to the GameEngine parent (RTS).
 	public GamePlay(GameEngine parent, RTS rts)
+	{
+		this(parent, rts, false);
+	}
+	
+	// GamePlay() - class constructor
+	// A headless GamePlay never touches the graphics, sound or input engines, so it can
+	// run a level without a window (see Headless.java).
+	public GamePlay(GameEngine parent, RTS rts, boolean runHeadless)
 	{
 		super(parent);
 		rtsPointer = rts;
+		headless = runHeadless;
 	}
 	
 	// initResources()
@@ -91,52 +117,72 @@ public class GamePlay extends GameObject
 	public void initResources()
 	{
 		// object initialization
-		gameUI = new GameUI(this);
-		pauseMenu = new PauseMenu(this);
+		if (!headless)
+		{
+			gameUI = new GameUI(this);
+			pauseMenu = new PauseMenu(this);
+		}
 		camera = new Point(1050, 2300);
 		status = PLAYING;
 		numSelected = 0;
 		
 		// default values for member variables
 		score = 0;
+		tickTime = 0;
+		interpolation = 1;
 		difficulty = EASY;
 		godMode = false;
 		oneHitKills = false;
 		paused = false;
 		
 		// allocate memory for objects and fog of war information
-		friendlyUnits = new Unit[MAX_UNITS];
-		enemyUnits = new Unit[MAX_UNITS];
-		powerups = new Powerup[MAX_POWERUPS];
+		friendlyUnits = new Unit[INITIAL_CAPACITY];
+		enemyUnits = new Unit[INITIAL_CAPACITY];
+		powerups = new Powerup[INITIAL_CAPACITY];
 		fog = new int[Map.SIZE/FOG_SIZE][Map.SIZE/FOG_SIZE];
-		fogThick = getImage("Graphics/Environment/fogThick.png");
-		fogThin = getImage("Graphics/Environment/fogThin.png");
+		fogCount = new int[Map.SIZE/FOG_SIZE][Map.SIZE/FOG_SIZE];
+		if (!headless)
+			fogOverlay = new FogOverlay(getImage("Graphics/Environment/fogThick.png"), getImage("Graphics/Environment/fogThin.png"));
 		
 		// create groups for sprites
 		unitGroup = new SpriteGroup("Unit Group");
 		powerupGroup = new SpriteGroup("Powerup Group");
+		entities = new EntityStore();
+		kernels = loadKernels();
+		friendlyGrid = new UnitGrid(entities, kernels);
+		enemyGrid = new UnitGrid(entities, kernels);
 		
 		// load whichever level the parent class is holding
 		try { loadFromFile(rtsPointer.gameFile); }	
 		catch (FileNotFoundException notFound) { }	
 		catch (IOException io) { }
 		
-		// add each unit and powerup to their corresponding sprite group
-		for (int i = 0; i < numFriendlyUnits; i++)
-			unitGroup.add(friendlyUnits[i].sprite);
-		for (int i = 0; i < numEnemyUnits; i++)
-			unitGroup.add(enemyUnits[i].sprite);
+		// nothing else can be set up without a map
+		if (map == null)
+			return;
+		
+		// add each powerup to the powerup sprite group (spawnUnit() has done the units)
 		for (int i = 0; i <numPowerups; i++)
 			powerupGroup.add(powerups[i].sprite);
-
+		
+		// work out what the loaded units can see
+		initFog();
+		
+		// every unit plans its routes with the same pathfinder
+		pathfinder = new Pathfinder(map.getPathGrid(), map.getPathHierarchy());
+		pathService = new PathService(map.getPathGrid(), pathfinder, map.getNavMesh());
+		cooperativePlanner = new CooperativePlanner(map.getPathGrid());
+		
 		// initialize collision detection
-		unitCollision = new UnitCollision(this);
-		unitCollision.setCollisionGroup(unitGroup, unitGroup);
+		localAvoidance = new LocalAvoidance(this);
 		objectCollision = new ObjectCollision(this);
-		objectCollision.setCollisionGroup(unitGroup, map.objectGroup);
 		powerupCollision = new PowerupCollision(this);
 		powerupCollision.setCollisionGroup(unitGroup, powerupGroup);
 		
+		// a headless game has no music or camera to set up
+		if (headless)
+			return;
+		
 		// set music volume to half of the default value
 		bsMusic.setVolume(0.5f);
 		
@@ -159,6 +205,21 @@ public class GamePlay extends GameObject
 		}
 	}
 	
+	// loadKernels()
+	// Returns VectorKernels if it was compiled in and the Vector API is there to run it,
+	// and ScalarKernels otherwise
+	public static UnitKernels loadKernels()
+	{
+		try
+		{
+			return (UnitKernels)Class.forName("VectorKernels").getDeclaredConstructor().newInstance();
+		}
+		catch (Exception notThere) { }
+		catch (LinkageError noVectorAPI) { }
+		
+		return new ScalarKernels();
+	}
+	
 	// render()
 	// Draws everything to the screen each update cycle.
 	public void render(Graphics2D g)
@@ -171,15 +232,15 @@ public class GamePlay extends GameObject
 		// render dead units first so they don't appear on top of living units
 		for (int i = 0; i < numFriendlyUnits; i++)
 			if (!friendlyUnits[i].isAlive())
-				friendlyUnits[i].render(g, camera);
+				friendlyUnits[i].render(g, camera, interpolation);
 		
 		for (int i = 0; i < numEnemyUnits; i++)
 			if (!enemyUnits[i].isAlive())
-				enemyUnits[i].render(g, camera);
+				enemyUnits[i].render(g, camera, interpolation);
 		
 		for (int i = 0; i < numFriendlyUnits; i++)
 			if (friendlyUnits[i].isAlive())
-				friendlyUnits[i].render(g, camera);
+				friendlyUnits[i].render(g, camera, interpolation);
 		
 		// only render enemy units that aren't covered by fog of war
 		for (int i = 0; i < numEnemyUnits; i++)
@@ -189,7 +250,7 @@ public class GamePlay extends GameObject
 				int yLoc = (int)((enemyUnits[i].sprite.getY() + Unit.SIZE/2)/FOG_SIZE);
 				
 				if (fog[xLoc][yLoc] == 2)
-					enemyUnits[i].render(g, camera);
+					enemyUnits[i].render(g, camera, interpolation);
 			}
 		
 		renderFog(g);
@@ -269,9 +330,53 @@ public class GamePlay extends GameObject
 		if (status != PLAYING)
 			return;
 		
+		// run as many fixed ticks as the elapsed time covers.  A slow frame runs several
+		// ticks so combat speed stays the same, up to a limit so a long stall doesn't
+		// freeze the game catching up.
+		tickTime += elapsedTime;
+		int ticks = 0;
+		
+		while (tickTime >= TICK_LENGTH && status == PLAYING)
+		{
+			simulate();
+			tickTime -= TICK_LENGTH;
+			
+			if (++ticks == MAX_TICKS_PER_FRAME)
+			{
+				tickTime %= TICK_LENGTH;
+				break;
+			}
+		}
+		
+		// how far the screen is between the last tick and the next one
+		interpolation = (double)tickTime / TICK_LENGTH;
+	}
+	
+	// simulate()
+	// Advances the game world by one tick (TICK_LENGTH milliseconds) - units, powerups,
+	// collision, fog of war and the victory check.  Nothing here reads input or draws, so a
+	// headless game can call this directly.
+	public void simulate()
+	{
+		long elapsedTime = TICK_LENGTH;
+		
 		// check for victory and defeat
 		updateStatus();
 		
+		// routes asked for last tick are handed out in the same order every time, so the
+		// game plays out the same however the path workers were scheduled
+		for (int i = 0; i < numFriendlyUnits; i++)
+			friendlyUnits[i].deliverRoute(tick);
+		for (int i = 0; i < numEnemyUnits; i++)
+			enemyUnits[i].deliverRoute(tick);
+		
+		// remember where everything was so rendering can blend toward the new positions
+		entities.savePositions();
+		for (int i = 0; i < numFriendlyUnits; i++)
+			friendlyUnits[i].saveProjectilePositions();
+		for (int i = 0; i < numEnemyUnits; i++)
+			enemyUnits[i].saveProjectilePositions();
+		
 		// sprite update routines
 		for (int i = 0; i < numPowerups; i++)
 			powerups[i].update(elapsedTime);
@@ -279,12 +384,24 @@ public class GamePlay extends GameObject
 			friendlyUnits[i].update(elapsedTime);
 		for (int i = 0; i < numEnemyUnits; i++)
 			enemyUnits[i].update(elapsedTime);
+		entities.updateTimers(elapsedTime);
+		
+		// units steer around each other before anyone moves
+		localAvoidance.update();
+		entities.applyVelocities();
 		
-		unitCollision.checkCollision();
 		objectCollision.checkCollision();
 		powerupCollision.checkCollision();
+		entities.syncPositions();
+		
+		// rebucket units once they've moved and been pushed out of objects
+		updateGrids();
 		
 		updateFog();
+		
+		// start on this tick's route requests while the frame is drawn
+		pathService.flush();
+		tick++;
 	}
 	
 	// processInput()
@@ -635,6 +752,12 @@ public class GamePlay extends GameObject
 	{
 		int selectedIndex = 0;
 		
+		// groups share one flow field instead of each planning their own route, unless
+		// moves are planned cooperatively
+		FlowField field = null;
+		if ((command == Unit.MOVE && !isCooperative()) || command == Unit.ATTACK_MOVE)
+			field = createFlowField(x, y);
+		
 		for (int i = 0; i < numFriendlyUnits; i++)
 		{
 			if (friendlyUnits[i].isSelected())
@@ -649,10 +772,10 @@ public class GamePlay extends GameObject
 				switch (command)
 				{
 					case Unit.MOVE:
-						if (selectedIndex < 4)
-							friendlyUnits[i].move(x + selectedIndex*100, y);
+						if (isCooperative())
+							moveCooperatively(friendlyUnits[i], getFormationX(x, selectedIndex), getFormationY(y, selectedIndex));
 						else
-							friendlyUnits[i].move(x + (selectedIndex-4)*100, y + 100);
+							friendlyUnits[i].move(getFormationX(x, selectedIndex), getFormationY(y, selectedIndex), field);
 					break;
 					
 					case Unit.ATTACK:
@@ -660,10 +783,7 @@ public class GamePlay extends GameObject
 					break;
 					
 					case Unit.ATTACK_MOVE:
-						if (selectedIndex < 4)
-							friendlyUnits[i].attackMove(x + selectedIndex*100, y);
-						else
-							friendlyUnits[i].attackMove(x + (selectedIndex-4)*100, y + 100);
+						friendlyUnits[i].attackMove(getFormationX(x, selectedIndex), getFormationY(y, selectedIndex), field);
 					break;
 					
 					case Unit.STOP:
@@ -690,50 +810,188 @@ public class GamePlay extends GameObject
 		}
 	}
 	
+	// moveCooperatively()
+	// Plans the unit's move around the units already planned and sends it on its way.
+	// Falls back to an ordinary move if no plan is found.
+	private void moveCooperatively(Unit unit, int x, int y)
+	{
+		int route[] = cooperativePlanner.plan(unit, (int)unit.sprite.getX(), (int)unit.sprite.getY(), x, y, tick);
+		
+		if (route == null)
+			unit.move(x, y);
+		else
+			unit.moveScheduled(x, y, route, cooperativePlanner.getSchedule());
+	}
+	
+	// createFlowField()
+	// Builds a flow field toward every destination in a group move to x,y.  Returns null
+	// for a single unit, which is cheaper to route on its own.
+	private FlowField createFlowField(int x, int y)
+	{
+		int goals[] = new int[numFriendlyUnits];
+		int count = 0;
+		PathGrid grid = map.getPathGrid();
+		
+		for (int i = 0; i < numFriendlyUnits; i++)
+			if (friendlyUnits[i].isSelected() && friendlyUnits[i].isAlive())
+			{
+				goals[count] = grid.getCell(getFormationX(x, count), getFormationY(y, count));
+				count++;
+			}
+		
+		if (count < 2)
+			return null;
+		
+		return new FlowField(grid, goals, count);
+	}
+	
+	// getFormationX()
+	// Units in a group order are spread out in rows of four, 100 pixels apart
+	private int getFormationX(int x, int selectedIndex)
+	{
+		return x + (selectedIndex % 4)*100;
+	}
+	
+	// getFormationY()
+	private int getFormationY(int y, int selectedIndex)
+	{
+		return y + (selectedIndex / 4)*100;
+	}
+	
+	// updateGrids()
+	// Moves units between spatial grid cells after they move, and drops dead units from
+	// the grids.  Units that haven't left their cell cost a single comparison.
+	public void updateGrids()
+	{
+		for (int i = 0; i < numFriendlyUnits; i++)
+			friendlyGrid.update(friendlyUnits[i]);
+		for (int i = 0; i < numEnemyUnits; i++)
+			enemyGrid.update(enemyUnits[i]);
+	}
+	
 	// renderFog()
 	// draws the fog of war to the screen
 	public void renderFog(Graphics2D g)
 	{	
+		fogOverlay.render(g, camera);
+	}
+	
+	// setFog()
+	// Changes one fog cell.  All fog changes go through here so the overlay and the
+	// minimap only have to redraw the cells that changed.
+	private void setFog(int x, int y, int value)
+	{
+		if (fog[x][y] == value)
+			return;
+		
+		fog[x][y] = value;
+		
+		if (fogOverlay != null)
+			fogOverlay.set(x, y, value);
+		if (gameUI != null)
+			gameUI.getMinimap().setFog(x, y, value);
+	}
+	
+	// initFog()
+	// Builds the mask of fog cells a unit can see from the center of its cell, then
+	// reveals the area around every living friendly unit.  Anything that was visible when
+	// the game was saved goes back to explored until a unit sees it again.
+	public void initFog()
+	{
+		int reach = (Unit.SIGHT_RADIUS + 100) / FOG_SIZE + 1;
+		int radius = Unit.SIGHT_RADIUS + 100;
+		int count = 0;
+		
+		fogMaskX = new int[(2*reach + 1)*(2*reach + 1)];
+		fogMaskY = new int[(2*reach + 1)*(2*reach + 1)];
+		
+		for (int dx = -reach; dx <= reach; dx++)
+			for (int dy = -reach; dy <= reach; dy++)
+				if ((dx*FOG_SIZE)*(dx*FOG_SIZE) + (dy*FOG_SIZE)*(dy*FOG_SIZE) < radius*radius)
+				{
+					fogMaskX[count] = dx;
+					fogMaskY[count] = dy;
+					count++;
+				}
+		
+		int trimmedX[] = new int[count];
+		int trimmedY[] = new int[count];
+		System.arraycopy(fogMaskX, 0, trimmedX, 0, count);
+		System.arraycopy(fogMaskY, 0, trimmedY, 0, count);
+		fogMaskX = trimmedX;
+		fogMaskY = trimmedY;
+		
 		for (int x = 0; x < Map.SIZE / FOG_SIZE; x++)
-		{
 			for (int y = 0; y < Map.SIZE / FOG_SIZE; y++)
 			{
-				if (fog[x][y] == 0)
-					g.drawImage(fogThick, op, x*FOG_SIZE - 6 - camera.x, y*FOG_SIZE - 6 - camera.y);
-
-				else if (fog[x][y] == 1)
-					g.drawImage(fogThin, op, x*FOG_SIZE - 6 - camera.x, y*FOG_SIZE - 6 - camera.y);
+				fogCount[x][y] = 0;
+				if (fog[x][y] == 2)
+					setFog(x, y, 1);
 			}
-		}
+		
+		for (int i = 0; i < numFriendlyUnits; i++)
+			friendlyUnits[i].setFogCell(-1);
+		
+		updateFog();
 	}
 	
 	// updateFog()
-	// updates each tile of the fog of war array
+	// Each fog cell keeps count of how many friendly units can see it.  A unit only
+	// changes the counts when it moves into a different cell or dies, so most ticks this
+	// does nothing but compare cell numbers.
 	public void updateFog()
 	{
-		for (int x = 0; x < Map.SIZE / FOG_SIZE; x++)
+		int cells = Map.SIZE / FOG_SIZE;
+		
+		for (int i = 0; i < numFriendlyUnits; i++)
 		{
-			for (int y = 0; y < Map.SIZE / FOG_SIZE; y++)
+			Unit unit = friendlyUnits[i];
+			int cell = -1;
+			
+			// dead units don't reveal anything
+			if (unit.isAlive())
 			{
-				if (fog[x][y] == 2)
-					fog [x][y] = 1;
-				
-				for (int i = 0; i < numFriendlyUnits; i++)
-				{
-					// dead units don't reveal anything
-					if (!friendlyUnits[i].isAlive())
-						continue;
-					
-					int xLoc = x*FOG_SIZE + FOG_SIZE/2;
-					int yLoc = y*FOG_SIZE + FOG_SIZE/2;
-					
-					if (friendlyUnits[i].distanceFromPoint(xLoc, yLoc) < Unit.SIGHT_RADIUS + 100)
-					{
-						fog[x][y] = 2;
-						break;
-					}
-				}
+				int xLoc = Math.min(Math.max((int)((unit.sprite.getX() + Unit.SIZE/2)/FOG_SIZE), 0), cells - 1);
+				int yLoc = Math.min(Math.max((int)((unit.sprite.getY() + Unit.SIZE/2)/FOG_SIZE), 0), cells - 1);
+				cell = xLoc*cells + yLoc;
 			}
+			
+			if (cell == unit.getFogCell())
+				continue;
+			
+			// reveal the new area before hiding the old one so cells seen from both
+			// places never flicker
+			if (cell >= 0)
+				stampFog(cell / cells, cell % cells, 1);
+			if (unit.getFogCell() >= 0)
+				stampFog(unit.getFogCell() / cells, unit.getFogCell() % cells, -1);
+			
+			unit.setFogCell(cell);
+		}
+	}
+	
+	// stampFog()
+	// Adds delta to the count of every cell within sight of the fog cell x,y.  Cells that
+	// gain their first viewer become visible, and cells that lose their last viewer go
+	// back to explored.
+	private void stampFog(int x, int y, int delta)
+	{
+		int cells = Map.SIZE / FOG_SIZE;
+		
+		for (int i = 0; i < fogMaskX.length; i++)
+		{
+			int fx = x + fogMaskX[i];
+			int fy = y + fogMaskY[i];
+			
+			if (fx < 0 || fx >= cells || fy < 0 || fy >= cells)
+				continue;
+			
+			fogCount[fx][fy] += delta;
+			
+			if (fogCount[fx][fy] == 0)
+				setFog(fx, fy, 1);
+			else if (fogCount[fx][fy] == 1 && delta > 0)
+				setFog(fx, fy, 2);
 		}
 	}
 	
@@ -741,52 +999,133 @@ public class GamePlay extends GameObject
 	// Loads a game file. this could be a default file (new game) or a saved game file. 
 	public void loadFromFile(String file) throws FileNotFoundException, IOException
 	{
+		// the unit types are read the first time any game is loaded
+		UnitType.load();
+		
 		BufferedReader infile = new BufferedReader(new FileReader(file));
 		
 		map = new Map(this, infile.readLine());
 		level = Integer.parseInt(infile.readLine());
 		difficulty = Integer.parseInt(infile.readLine());
-		numFriendlyUnits = Integer.parseInt(infile.readLine());
-		numEnemyUnits = Integer.parseInt(infile.readLine());
-		numPowerups = Integer.parseInt(infile.readLine());
-		
-		for (int i = 0; i < numPowerups; i++)
+		int friendlyCount = Integer.parseInt(infile.readLine());
+		int enemyCount = Integer.parseInt(infile.readLine());
+		int powerupCount = Integer.parseInt(infile.readLine());
+		
+		// any number of each is fine - the arrays are made big enough up front
+		friendlyUnits = new Unit[Math.max(friendlyCount, INITIAL_CAPACITY)];
+		enemyUnits = new Unit[Math.max(enemyCount, INITIAL_CAPACITY)];
+		powerups = new Powerup[Math.max(powerupCount, INITIAL_CAPACITY)];
+		numFriendlyUnits = 0;
+		numEnemyUnits = 0;
+		numPowerups = 0;
+		
+		for (int i = 0; i < powerupCount; i++)
 		{
 			infile.readLine();
-			powerups[i] = new Powerup(this, i, Integer.parseInt(infile.readLine()));
-			powerups[i].sprite.setX(Integer.parseInt(infile.readLine()));
-			powerups[i].sprite.setY(Integer.parseInt(infile.readLine()));
+			Powerup powerup = new Powerup(this, numPowerups, Integer.parseInt(infile.readLine()));
+			powerup.sprite.setX(Integer.parseInt(infile.readLine()));
+			powerup.sprite.setY(Integer.parseInt(infile.readLine()));
+			addPowerup(powerup);
 		}
 		
-		for (int i = 0; i < numFriendlyUnits; i++)
+		for (int i = 0; i < friendlyCount; i++)
 		{
 			infile.readLine();
-			friendlyUnits[i] = new Unit(this, i, Integer.parseInt(infile.readLine()));
-			friendlyUnits[i].setCurrentHp(Integer.parseInt(infile.readLine()));
-			friendlyUnits[i].sprite.setX(Integer.parseInt(infile.readLine()));
-			friendlyUnits[i].sprite.setY(Integer.parseInt(infile.readLine()));
+			int type = Integer.parseInt(infile.readLine());
+			int hp = Integer.parseInt(infile.readLine());
+			spawnUnit(type, true, Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine())).setCurrentHp(hp);
 		}
 		
-		for (int i = 0; i < numEnemyUnits; i++)
+		for (int i = 0; i < enemyCount; i++)
 		{
 			infile.readLine();
-			enemyUnits[i] = new Unit(this, -i - 1, Integer.parseInt(infile.readLine()));
-			enemyUnits[i].setCurrentHp(Integer.parseInt(infile.readLine()));
-			enemyUnits[i].sprite.setX(Integer.parseInt(infile.readLine()));
-			enemyUnits[i].sprite.setY(Integer.parseInt(infile.readLine()));
+			int type = Integer.parseInt(infile.readLine());
+			int hp = Integer.parseInt(infile.readLine());
+			spawnUnit(type, false, Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine())).setCurrentHp(hp);
 		}
 		
 		for (int i = 0; i < Map.SIZE/FOG_SIZE; i++)
 		{
 			for (int j = 0; j < Map.SIZE/FOG_SIZE; j++)
 			{
-				fog[i][j] = Integer.parseInt(infile.readLine());
+				setFog(i, j, Integer.parseInt(infile.readLine()));
 			}
 		}
 		
 		infile.close();
 	}
 	
+	// spawnUnit()
+	// Puts a unit of the given type in the game at x,y (its sprite's top left corner), in
+	// the player's army if friendly is true and the enemy's if not, and returns it.  Used
+	// for loading games and for adding units while one plays.  Units left over from
+	// earlier games are used again when there are any (see UnitPool).
+	public Unit spawnUnit(int type, boolean friendly, int x, int y)
+	{
+		Unit unit = rtsPointer.unitPool.obtain(this, type);
+		unit.setPosition(x, y);
+		unitGroup.add(unit.sprite);
+		
+		if (friendly)
+		{
+			addFriendlyUnit(unit);
+			friendlyGrid.update(unit);
+		}
+		else
+		{
+			addEnemyUnit(unit);
+			enemyGrid.update(unit);
+		}
+		
+		return unit;
+	}
+	
+	// finish()
+	// Ends the game, handing its units back to the pool for the next game
+	public void finish()
+	{
+		for (int i = 0; i < numFriendlyUnits; i++)
+			rtsPointer.unitPool.release(friendlyUnits[i]);
+		for (int i = 0; i < numEnemyUnits; i++)
+			rtsPointer.unitPool.release(enemyUnits[i]);
+		
+		numFriendlyUnits = 0;
+		numEnemyUnits = 0;
+		super.finish();
+	}
+	
+	// addFriendlyUnit()
+	// Adds a unit to the player's army, doubling the array when it is full.  Units are
+	// never taken out (dead units stay as bodies), so a unit's index never changes.
+	private void addFriendlyUnit(Unit unit)
+	{
+		if (numFriendlyUnits == friendlyUnits.length)
+			friendlyUnits = Arrays.copyOf(friendlyUnits, numFriendlyUnits*2);
+		
+		friendlyUnits[numFriendlyUnits++] = unit;
+	}
+	
+	// addEnemyUnit()
+	// adds a unit to the enemy army, doubling the array when it is full
+	private void addEnemyUnit(Unit unit)
+	{
+		if (numEnemyUnits == enemyUnits.length)
+			enemyUnits = Arrays.copyOf(enemyUnits, numEnemyUnits*2);
+		
+		enemyUnits[numEnemyUnits++] = unit;
+	}
+	
+	// addPowerup()
+	// Adds a powerup, doubling the array when it is full.  A powerup's index is its
+	// sprite ID, so powerups are never taken out either - picked up ones are just dead.
+	private void addPowerup(Powerup powerup)
+	{
+		if (numPowerups == powerups.length)
+			powerups = Arrays.copyOf(powerups, numPowerups*2);
+		
+		powerups[numPowerups++] = powerup;
+	}
+	
 	// save()
 	// saves all relavent data to the specified save slot
 	public void save(int slot) throws IOException
@@ -897,9 +1236,9 @@ public class GamePlay extends GameObject
 	// gets the fog of war information at the x,y coordinate specified
 	public int getFog(int x, int y)
 	{
-		if (x < 0 || x > Map.SIZE/FOG_SIZE)
+		if (x < 0 || x >= Map.SIZE/FOG_SIZE)
 			return -1;
-		if (y < 0 || y > Map.SIZE/FOG_SIZE)
+		if (y < 0 || y >= Map.SIZE/FOG_SIZE)
 			return -1;
 		
 		return fog[x][y];
@@ -1011,10 +1350,71 @@ public class GamePlay extends GameObject
 		return numLeft;
 	}
 	
+	// getImage()
+	// Headless games read images themselves (see Headless.getImage()), as the engine's
+	// loader needs a screen to make them for.
+	public BufferedImage getImage(String imagefile)
+	{
+		if (headless)
+			return Headless.getImage(imagefile);
+		
+		return super.getImage(imagefile);
+	}
+	
+	// getImages()
+	// Headless version of getImages - see getImage()
+	public BufferedImage[] getImages(String imagefile, int col, int row)
+	{
+		if (headless)
+			return Headless.getImages(imagefile, col, row);
+		
+		return super.getImages(imagefile, col, row);
+	}
+	
+	// playSound()
+	// Sounds are skipped in a headless game.
+	public int playSound(String audiofile)
+	{
+		if (headless)
+			return -1;
+		
+		return super.playSound(audiofile);
+	}
+	
+	// playMusic()
+	// Music is skipped in a headless game.
+	public int playMusic(String audiofile)
+	{
+		if (headless)
+			return -1;
+		
+		return super.playMusic(audiofile);
+	}
+	
 	// ******
 	// Getter functions
 	// ******
 	
+	public boolean isHeadless()
+	{
+		return headless;
+	}
+	
+	public int getStatus()
+	{
+		return status;
+	}
+	
+	public int getLevel()
+	{
+		return level;
+	}
+	
+	public double getInterpolation()
+	{
+		return interpolation;
+	}
+	
 	public boolean isGodMode()
 	{
 		return godMode;
@@ -1059,4 +1459,63 @@ public class GamePlay extends GameObject
 	{
 		return map;
 	}
+	
+	public Pathfinder getPathfinder()
+	{
+		return pathfinder;
+	}
+	
+	// returns true if move orders are planned cooperatively (see RTS.cooperativeMoves)
+	public boolean isCooperative()
+	{
+		return rtsPointer.cooperativeMoves;
+	}
+	
+	public CooperativePlanner getCooperativePlanner()
+	{
+		return cooperativePlanner;
+	}
+	
+	// returns the navigation mesh units plan their own routes over, or null if they plan
+	// them on the grid (see RTS.gridRouting)
+	public NavMesh getNavMesh()
+	{
+		return rtsPointer.gridRouting || map == null ? null : map.getNavMesh();
+	}
+	
+	public PathService getPathService()
+	{
+		return pathService;
+	}
+	
+	// returns the number of ticks simulated so far
+	public long getTick()
+	{
+		return tick;
+	}
+	
+	public LocalAvoidance getLocalAvoidance()
+	{
+		return localAvoidance;
+	}
+	
+	public UnitGrid getFriendlyGrid()
+	{
+		return friendlyGrid;
+	}
+	
+	public UnitGrid getEnemyGrid()
+	{
+		return enemyGrid;
+	}
+	
+	public EntityStore getEntities()
+	{
+		return entities;
+	}
+	
+	public UnitKernels getKernels()
+	{
+		return kernels;
+	}
 }
\ No newline at end of file
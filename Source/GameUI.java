@@ -34,7 +34,7 @@ public class GameUI
 	private Point boxOrigin;
 	private int mode;
 	
-	private BufferedImage minimap;
+	private Minimap minimap;
 	
 	private BufferedImage wizardPortrait;
 	private BufferedImage knightPortrait;
@@ -84,7 +84,7 @@ public class GameUI
 		boxOrigin = new Point();
 		mode = NORMAL;
 		
-		minimap = gamePlay.getImage("Graphics/Menu/minimap.jpg");
+		minimap = new Minimap(gamePlay, gamePlay.getImage("Graphics/Menu/minimap.jpg"));
 		
 		wizardPortrait = gamePlay.getImage("Graphics/Menu/wizardPortrait.png");
 		knightPortrait = gamePlay.getImage("Graphics/Menu/knightPortrait.png");
@@ -181,10 +181,14 @@ public class GameUI
 			
 			float ratio = ((float)hp / (float)maxhp) * 96;
 			
+			// follow the unit where it's drawn, not where the simulation has it
+			int x = target.getRenderX(gamePlay.getInterpolation()) - camera.x;
+			int y = target.getRenderY(gamePlay.getInterpolation()) - camera.y;
+			
 			g.setColor(Color.BLACK);
-			g.fillRect((int)target.sprite.getX() - camera.x, (int)target.sprite.getY() - camera.y, 96, 6);
+			g.fillRect(x, y, 96, 6);
 			g.setColor(Color.GREEN);
-			g.fillRect((int)target.sprite.getX() - camera.x + 1, (int)target.sprite.getY() - camera.y + 1, (int)(ratio - 2), 4);
+			g.fillRect(x + 1, y + 1, (int)(ratio - 2), 4);
 			
 			g.drawImage(cursorSword, op, gamePlay.getMouseX(), gamePlay.getMouseY());
 		}
@@ -426,51 +430,9 @@ public class GameUI
 	// draws the minimap in the bottom right corner
 	public void renderMinimap(Graphics2D g)
 	{
-		g.drawImage(minimap, op, 846, 646);
-		g.setColor(Color.BLACK);
-		
-		// draw the fog on the minimap
-		for (int x = 0; x < Map.SIZE/GamePlay.FOG_SIZE; x++)
-		{
-			for (int y = 0; y < Map.SIZE/GamePlay.FOG_SIZE; y++)
-			{
-				if (gamePlay.getFog(x, y) == 0)
-				{
-					g.fillRect(850 + x*3, 650 + y*3, 3, 3);
-				}
-			}
-		}
-		
-		g.setColor(Color.RED);
-		
-		// draw enemy units
-		for (int i = 0; i < gamePlay.getNumEnemyUnits(); i++)
-		{
-			Unit unit = gamePlay.enemyUnits[i];
-			if (!unit.isAlive())
-				continue;
-			
-			int xLoc = (int)((unit.sprite.getX() + Unit.SIZE/2)/GamePlay.FOG_SIZE);
-			int yLoc = (int)((unit.sprite.getY() + Unit.SIZE/2)/GamePlay.FOG_SIZE);
-			
-			if (gamePlay.getFog(xLoc, yLoc) == 2)
-				g.fillRect(850 + xLoc*3, 650 + yLoc*3, 3, 3);
-		}
-		
-		g.setColor(Color.CYAN);
-		
-		// draw friendly units
-		for (int i = 0; i < gamePlay.getNumFriendlyUnits(); i++)
-		{
-			Unit unit = gamePlay.friendlyUnits[i];
-			if (!unit.isAlive())
-				continue;
-			
-			int xLoc = (int)((unit.sprite.getX() + Unit.SIZE/2)/GamePlay.FOG_SIZE);
-			int yLoc = (int)((unit.sprite.getY() + Unit.SIZE/2)/GamePlay.FOG_SIZE);
-			
-			g.fillRect(850 + xLoc*3, 650 + yLoc*3, 3, 3);
-		}
+		// fog changes reach the minimap as they happen, units are caught up here
+		minimap.updateUnits();
+		minimap.render(g, 846, 646);
 		
 		g.setColor(Color.WHITE);
 		
@@ -583,6 +545,11 @@ public class GameUI
 		return mode;
 	}
 	
+	public Minimap getMinimap()
+	{
+		return minimap;
+	}
+	
 	public Rectangle getRect()
 	{
 		return box;
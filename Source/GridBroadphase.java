@@ -0,0 +1,115 @@
+/*
+ * Name of code: GridBroadphase.java
+ * Description:  Broadphase that buckets boxes into a uniform grid and only tests boxes
+ *				 that share a cell.  The cell size defaults to Unit.SIZE, which is larger
+ *				 than a unit's collision box, so each box touches at most four cells.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class GridBroadphase implements Broadphase
+{
+	private int cellSize;
+	private int cells;
+
+	// cell contents, packed: the boxes in cell c are entries[cellStart[c]] up to
+	// entries[cellStart[c+1]]
+	private int cellStart[];
+	private int cellFill[];
+	private int entries[];
+
+	// GridBroadphase() - class constructor
+	// Uses cells the size of a unit
+	public GridBroadphase()
+	{
+		this(Unit.SIZE);
+	}
+
+	// GridBroadphase() - class constructor
+	public GridBroadphase(int size)
+	{
+		cellSize = size;
+		cells = Map.SIZE / cellSize + 1;
+		cellStart = new int[cells*cells + 1];
+		cellFill = new int[cells*cells];
+		entries = new int[64];
+	}
+
+	// findPairs()
+	// See Broadphase.  Boxes are counted into their cells, packed into one array, and
+	// each cell's boxes are tested against each other.
+	public void findPairs(double left[], double top[], double right[], double bottom[], int count, PairList pairs)
+	{
+		java.util.Arrays.fill(cellStart, 0);
+
+		// count how many boxes land in each cell
+		int total = 0;
+		for (int i = 0; i < count; i++)
+		{
+			for (int cy = getCell(top[i]); cy <= getCell(bottom[i]); cy++)
+				for (int cx = getCell(left[i]); cx <= getCell(right[i]); cx++)
+				{
+					cellStart[cy*cells + cx + 1]++;
+					total++;
+				}
+		}
+
+		for (int c = 0; c < cells*cells; c++)
+			cellStart[c + 1] += cellStart[c];
+
+		if (entries.length < total)
+			entries = new int[total*2];
+
+		// fill each cell's range
+		System.arraycopy(cellStart, 0, cellFill, 0, cells*cells);
+		for (int i = 0; i < count; i++)
+		{
+			for (int cy = getCell(top[i]); cy <= getCell(bottom[i]); cy++)
+				for (int cx = getCell(left[i]); cx <= getCell(right[i]); cx++)
+					entries[cellFill[cy*cells + cx]++] = i;
+		}
+
+		for (int c = 0; c < cells*cells; c++)
+		{
+			int cx = c % cells;
+			int cy = c / cells;
+
+			for (int a = cellStart[c]; a < cellStart[c + 1]; a++)
+			{
+				int i = entries[a];
+
+				for (int b = a + 1; b < cellStart[c + 1]; b++)
+				{
+					int j = entries[b];
+
+					if (left[i] >= right[j] || left[j] >= right[i] || top[i] >= bottom[j] || top[j] >= bottom[i])
+						continue;
+
+					// two boxes can share several cells - only report the pair from the
+					// cell holding the top left corner of their overlap
+					if (getCell(Math.max(left[i], left[j])) != cx || getCell(Math.max(top[i], top[j])) != cy)
+						continue;
+
+					if (i < j)
+						pairs.add(i, j);
+					else
+						pairs.add(j, i);
+				}
+			}
+		}
+	}
+
+	// getCell()
+	// returns the cell coordinate for a position, kept on the map
+	private int getCell(double position)
+	{
+		int c = (int)(position / cellSize);
+
+		if (c < 0)
+			return 0;
+		if (c >= cells)
+			return cells - 1;
+
+		return c;
+	}
+}
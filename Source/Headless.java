@@ -0,0 +1,266 @@
+/*
+ * Name of code: Headless.java
+ * Description:  Runs a level with no window, graphics, sound or input.  Units, collision,
+ *				 fog of war and the victory check are ticked as fast as the CPU allows,
+ *				 which is used to soak-test and profile levels on build machines.
+ *				 Usage: java Headless <game file> [max ticks] [grid|sweep|quadtree]
+ *				 [gridrouting] [cooperative]
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import javax.imageio.ImageIO;
+
+public class Headless
+{
+	public static final int DEFAULT_TICKS = GamePlay.TICK_RATE * 60 * 20;
+
+	// how often idle friendly units are sent toward the enemy
+	public static final int ORDER_INTERVAL = 30;
+
+	private static HashMap<String, BufferedImage> images = new HashMap<String, BufferedImage>();
+	private static HashMap<String, BufferedImage[]> imageSets = new HashMap<String, BufferedImage[]>();
+
+	// main()
+	// Loads the game file and runs it until somebody wins or the tick limit is reached,
+	// then prints the result and timing.
+	public static void main(String[] args)
+	{
+		if (args.length < 1)
+		{
+			System.out.println("Usage: java Headless <game file> [max ticks] [grid|sweep|quadtree] [gridrouting] [cooperative]");
+			System.exit(1);
+		}
+
+		System.setProperty("java.awt.headless", "true");
+
+		int maxTicks = DEFAULT_TICKS;
+		if (args.length > 1)
+			maxTicks = Integer.parseInt(args[1]);
+
+		RTS rts = new RTS();
+		rts.gameFile = args[0];
+
+		// options after the broadphase
+		for (int i = 3; i < args.length; i++)
+		{
+			if (args[i].equals("gridrouting"))
+				rts.gridRouting = true;
+			else if (args[i].equals("cooperative"))
+				rts.cooperativeMoves = true;
+			else
+			{
+				System.out.println("Unknown option " + args[i]);
+				System.exit(1);
+			}
+		}
+
+		long loadStart = System.currentTimeMillis();
+		GamePlay game = new GamePlay(rts, rts, true);
+		game.initResources();
+		long loadTime = System.currentTimeMillis() - loadStart;
+
+		if (game.getMap() == null)
+		{
+			System.out.println("Could not load " + args[0]);
+			System.exit(1);
+		}
+
+		// broadphase used to find neighbouring units, for comparing them
+		String broadphase = "grid";
+		if (args.length > 2)
+			broadphase = args[2];
+
+		if (broadphase.equals("sweep"))
+			game.getLocalAvoidance().setBroadphase(new SweepAndPruneBroadphase());
+		else if (broadphase.equals("quadtree"))
+			game.getLocalAvoidance().setBroadphase(new QuadtreeBroadphase());
+		else if (!broadphase.equals("grid"))
+		{
+			System.out.println("Unknown broadphase " + broadphase);
+			System.exit(1);
+		}
+
+		int ticks = 0;
+		long start = System.currentTimeMillis();
+
+		while (game.getStatus() == GamePlay.PLAYING && ticks < maxTicks)
+		{
+			if (ticks % ORDER_INTERVAL == 0)
+				orderIdleUnits(game);
+
+			game.simulate();
+			ticks++;
+		}
+
+		long runTime = System.currentTimeMillis() - start;
+
+		String result = "Timeout";
+		if (game.getStatus() == GamePlay.VICTORY)
+			result = "Victory";
+		else if (game.getStatus() == GamePlay.DEFEAT)
+			result = "Defeat";
+
+		System.out.println("Game file:      " + args[0]);
+		System.out.println("Level:          " + game.getLevel());
+		System.out.println("Broadphase:     " + broadphase);
+		System.out.println("Routing:        " + (rts.gridRouting ? "grid" : "navigation mesh"));
+		System.out.println("Moves:          " + (rts.cooperativeMoves ? "cooperative" : "attack-move"));
+		System.out.println("Kernels:        " + game.getKernels().getClass().getName());
+		System.out.println("Result:         " + result);
+		System.out.println("Ticks:          " + ticks + " (" + (ticks / GamePlay.TICK_RATE) + "s of game time)");
+		System.out.println("Load time:      " + loadTime + "ms");
+		System.out.println("Run time:       " + runTime + "ms");
+		if (runTime > 0)
+			System.out.println("Ticks/second:   " + (ticks * 1000L / runTime));
+		System.out.println("Friendly units: " + game.getRemainingFriendlyUnits() + " / " + game.getNumFriendlyUnits());
+		System.out.println("Enemy units:    " + game.getRemainingEnemyUnits() + " / " + game.getNumEnemyUnits());
+		System.out.println("Score:          " + game.calcScore());
+	}
+
+	// orderIdleUnits()
+	// Stands in for the player - every stopped friendly unit attack-moves toward the
+	// closest living enemy so matches actually finish.  The distances from each unit to
+	// every enemy are worked out in one go by the game's UnitKernels.  When moves are
+	// planned cooperatively, the units headed for the same enemy are given one group
+	// move order instead, the way the player would, so they plan around each other.
+	private static void orderIdleUnits(GamePlay game)
+	{
+		Unit enemies[] = new Unit[game.getNumEnemyUnits()];
+		int chosen[] = new int[game.getNumFriendlyUnits()];
+		double enemyX[] = new double[enemies.length];
+		double enemyY[] = new double[enemies.length];
+		double distances[] = new double[enemies.length];
+		int numEnemies = 0;
+
+		for (int j = 0; j < game.getNumEnemyUnits(); j++)
+		{
+			Unit enemy = game.enemyUnits[j];
+			if (!enemy.isAlive())
+				continue;
+
+			enemies[numEnemies] = enemy;
+			enemyX[numEnemies] = (int)enemy.sprite.getX() + Unit.SIZE/2;
+			enemyY[numEnemies] = (int)enemy.sprite.getY() + Unit.SIZE/2;
+			numEnemies++;
+		}
+
+		for (int i = 0; i < game.getNumFriendlyUnits(); i++)
+		{
+			Unit unit = game.friendlyUnits[i];
+			chosen[i] = -1;
+			if (!unit.isAlive() || unit.getState() != Unit.STOP)
+				continue;
+
+			int closest = -1;
+			int closestDistance = 0;
+
+			game.getKernels().distances(enemyX, enemyY, numEnemies, unit.getX() + Unit.SIZE/2, unit.getY() + Unit.SIZE/2, distances);
+
+			// whole pixels, as distanceFromPoint() gives
+			for (int j = 0; j < numEnemies; j++)
+			{
+				int dist = (int)Math.sqrt(distances[j]);
+				if (closest < 0 || dist < closestDistance)
+				{
+					closest = j;
+					closestDistance = dist;
+				}
+			}
+
+			if (closest >= 0 && !game.isCooperative())
+			{
+				unit.reset();
+				unit.attackMove((int)enemies[closest].sprite.getX(), (int)enemies[closest].sprite.getY());
+			}
+
+			chosen[i] = closest;
+		}
+
+		if (!game.isCooperative())
+			return;
+
+		for (int j = 0; j < numEnemies; j++)
+		{
+			boolean any = false;
+			for (int i = 0; i < game.getNumFriendlyUnits(); i++)
+			{
+				if (chosen[i] == j)
+				{
+					game.friendlyUnits[i].select();
+					any = true;
+				}
+				else
+					game.friendlyUnits[i].unSelect();
+			}
+
+			if (any)
+				game.orderUnits(Unit.MOVE, (int)enemies[j].sprite.getX(), (int)enemies[j].sprite.getY(), null);
+		}
+	}
+
+	// getImage()
+	// Reads an image file, alpha and all, so sprite bounds and collision masks are the
+	// same as in the real game.  Images are shared, so each file is only read once.  A
+	// file that isn't there is reported and stood in for by a unit sized square, which
+	// collides as a solid rectangle.
+	public static BufferedImage getImage(String imagefile)
+	{
+		BufferedImage image = images.get(imagefile);
+
+		if (image == null && !new File(imagefile).isFile())
+		{
+			System.out.println("Missing image:  " + imagefile + " (using a " + Unit.SIZE + "x" + Unit.SIZE + " square)");
+			image = new BufferedImage(Unit.SIZE, Unit.SIZE, BufferedImage.TYPE_INT_ARGB);
+			images.put(imagefile, image);
+		}
+
+		if (image == null)
+		{
+			try
+			{
+				image = ImageIO.read(new File(imagefile));
+			}
+			catch (IOException e)
+			{
+				throw new IllegalArgumentException("could not read image " + imagefile, e);
+			}
+
+			// no reader knew the file's format
+			if (image == null)
+				throw new IllegalArgumentException("could not read image " + imagefile);
+
+			images.put(imagefile, image);
+		}
+
+		return image;
+	}
+
+	// getImages()
+	// Cuts an image file into col*row frames, left to right then top to bottom
+	public static BufferedImage[] getImages(String imagefile, int col, int row)
+	{
+		String key = imagefile + ":" + col + "x" + row;
+		BufferedImage frames[] = imageSets.get(key);
+
+		if (frames == null)
+		{
+			BufferedImage image = getImage(imagefile);
+			int width = image.getWidth() / col;
+			int height = image.getHeight() / row;
+
+			frames = new BufferedImage[col * row];
+			for (int y = 0; y < row; y++)
+				for (int x = 0; x < col; x++)
+					frames[y*col + x] = image.getSubimage(x*width, y*height, width, height);
+
+			imageSets.put(key, frames);
+		}
+
+		return frames;
+	}
+}
@@ -0,0 +1,564 @@
+/*
+ * Name of code: LocalAvoidance.java
+ * Description:  Keeps units from walking into each other.  Each tick, after the units
+ *				 have decided where they want to go, every moving unit picks the velocity
+ *				 closest to the one it wants that won't run it into a nearby unit within
+ *				 TIME_HORIZON ticks (optimal reciprocal collision avoidance).  Two moving
+ *				 units each take half the effort of getting out of the other's way, so
+ *				 crowds slide past each other instead of stopping and detouring.  Units
+ *				 that are standing still - stopped, fighting or casting - hold their
+ *				 ground and are walked around.  A unit stuck in a crowd for a while is let
+ *				 through (see Unit.isSqueezing()).  Map obstacles close by are added as
+ *				 limits that are never broken, so units slide along them instead of
+ *				 running into them.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.util.Arrays;
+
+public class LocalAvoidance
+{
+	// constants
+	// units are treated as circles the width of their collision box
+	public static final double RADIUS = (Unit.SIZE - 2*ObjectCollision.BUFFER) / 2.0;
+
+	// how many ticks ahead collisions are avoided
+	public static final double TIME_HORIZON = 15;
+
+	// how many ticks ahead collisions with obstacles are avoided
+	public static final double OBSTACLE_HORIZON = 2;
+
+	// units further apart than this (in both directions) are never considered
+	public static final double NEIGHBOUR_DISTANCE = 160;
+
+	private static final double EPSILON = 0.00001;
+
+	private GamePlay gamePlay;
+
+	// the entities of the living units and their neighbour boxes, gathered each tick for
+	// the broadphase
+	private Broadphase broadphase;
+	private PairList pairs;
+	private int ids[];
+	private double left[];
+	private double top[];
+	private double right[];
+	private double bottom[];
+
+	// the velocities worked out this tick, by gathered unit.  They are only handed to the
+	// entities once every unit has been worked out, so each unit avoids its neighbours
+	// knowing how they were moving last tick, whatever order the units are in.
+	private double newVelocityX[];
+	private double newVelocityY[];
+
+	// neighbours of unit i are neighbours[neighbourStart[i]] up to neighbourStart[i + 1]
+	private int neighbourStart[];
+	private int neighbourEnd[];
+	private int neighbours[];
+
+	// obstacles near the unit being worked out
+	private int found[];
+
+	// half-planes of allowed velocities for the unit being worked out, and the scratch
+	// set used when they can't all be met
+	private HalfPlanes planes;
+	private HalfPlanes projected;
+
+	// the velocity being worked out
+	private double resultX;
+	private double resultY;
+
+	// LocalAvoidance() - class constructor
+	public LocalAvoidance(GamePlay parent)
+	{
+		gamePlay = parent;
+		broadphase = new GridBroadphase();
+		pairs = new PairList();
+		allocate(EntityStore.INITIAL_CAPACITY);
+		neighbours = new int[EntityStore.INITIAL_CAPACITY*4];
+		found = new int[parent.getMap().getObjectIndex().getNumObjects()];
+		planes = new HalfPlanes(EntityStore.INITIAL_CAPACITY);
+		projected = new HalfPlanes(EntityStore.INITIAL_CAPACITY);
+	}
+
+	// setBroadphase()
+	// Changes the method used to find neighbouring units (grid by default)
+	public void setBroadphase(Broadphase b)
+	{
+		broadphase = b;
+	}
+
+	// update()
+	// Sets the velocity of every living unit for this tick.  Called after the units have
+	// updated (which sets the velocity they would like) and before they move.  Like the
+	// reference RVO2 library, every unit is worked out against last tick's velocities
+	// before any of the new ones are set.
+	public void update()
+	{
+		EntityStore entities = gamePlay.getEntities();
+		int count = 0;
+
+		if (entities.getCount() > ids.length)
+			allocate(Math.max(entities.getCount(), ids.length*2));
+
+		for (int e = 0; e < entities.getCount(); e++)
+			if (entities.alive[e])
+				ids[count++] = e;
+
+		// units are neighbours when their boxes, grown by half the neighbour distance,
+		// overlap
+		for (int i = 0; i < count; i++)
+		{
+			left[i] = entities.x[ids[i]] - NEIGHBOUR_DISTANCE/2;
+			top[i] = entities.y[ids[i]] - NEIGHBOUR_DISTANCE/2;
+			right[i] = entities.x[ids[i]] + NEIGHBOUR_DISTANCE/2;
+			bottom[i] = entities.y[ids[i]] + NEIGHBOUR_DISTANCE/2;
+		}
+
+		pairs.clear();
+		broadphase.findPairs(left, top, right, bottom, count, pairs);
+		pairs.sort();
+		findNeighbours(count);
+
+		for (int i = 0; i < count; i++)
+		{
+			int e = ids[i];
+
+			if (!entities.steering[e])
+			{
+				newVelocityX[i] = 0;
+				newVelocityY[i] = 0;
+				continue;
+			}
+
+			double maxSpeed = entities.maxStep[e];
+
+			planes.clear();
+			addObstacles(entities.x[e], entities.y[e], maxSpeed);
+			int numObstacles = planes.count;
+			if (entities.squeezeTicks[e] == 0)
+				for (int n = neighbourStart[i]; n < neighbourStart[i + 1]; n++)
+					addPlane(entities, e, ids[neighbours[n]]);
+
+			int failed = solve(planes, maxSpeed, entities.preferredX[e], entities.preferredY[e], false);
+			if (failed < planes.count)
+				solveCrowded(numObstacles, failed, maxSpeed);
+
+			newVelocityX[i] = resultX;
+			newVelocityY[i] = resultY;
+		}
+
+		for (int i = 0; i < count; i++)
+		{
+			entities.velocityX[ids[i]] = newVelocityX[i];
+			entities.velocityY[ids[i]] = newVelocityY[i];
+		}
+	}
+
+	// allocate()
+	// makes room to gather capacity units each tick
+	private void allocate(int capacity)
+	{
+		ids = new int[capacity];
+		left = new double[capacity];
+		top = new double[capacity];
+		right = new double[capacity];
+		bottom = new double[capacity];
+		newVelocityX = new double[capacity];
+		newVelocityY = new double[capacity];
+		neighbourStart = new int[capacity + 1];
+		neighbourEnd = new int[capacity];
+	}
+
+	// findNeighbours()
+	// Turns the pair list into a list of neighbours for each unit
+	private void findNeighbours(int count)
+	{
+		for (int i = 0; i <= count; i++)
+			neighbourStart[i] = 0;
+
+		for (int p = 0; p < pairs.size(); p++)
+		{
+			neighbourStart[pairs.getFirst(p) + 1]++;
+			neighbourStart[pairs.getSecond(p) + 1]++;
+		}
+
+		for (int i = 0; i < count; i++)
+		{
+			neighbourStart[i + 1] += neighbourStart[i];
+			neighbourEnd[i] = neighbourStart[i];
+		}
+
+		if (neighbourStart[count] > neighbours.length)
+			neighbours = new int[neighbourStart[count]*2];
+
+		for (int p = 0; p < pairs.size(); p++)
+		{
+			int i = pairs.getFirst(p);
+			int j = pairs.getSecond(p);
+			neighbours[neighbourEnd[i]++] = j;
+			neighbours[neighbourEnd[j]++] = i;
+		}
+	}
+
+	// addObstacles()
+	// Adds a half-plane for each obstacle a unit at x,y could reach within OBSTACLE_HORIZON
+	// ticks, keeping it from closing more than that share of the gap each tick.  Obstacles
+	// are boxes of the positions a unit can't stand at (see PathGrid), so the unit is
+	// treated as a point.
+	private void addObstacles(double x, double y, double maxSpeed)
+	{
+		Map map = gamePlay.getMap();
+		ObjectIndex index = map.getObjectIndex();
+		double reach = maxSpeed*OBSTACLE_HORIZON + 1;
+		int count = index.query(x - reach, y - reach, Unit.SIZE + reach*2, Unit.SIZE + reach*2, found);
+
+		for (int i = 0; i < count; i++)
+		{
+			int object = found[i];
+			if (!Map.isObstacle(index.getType(object)))
+				continue;
+
+			double minX = index.getLeft(object) + ObjectCollision.BUFFER*2 - Unit.SIZE;
+			double minY = index.getTop(object) + ObjectCollision.BUFFER*2 - Unit.SIZE;
+			double maxX = index.getRight(object) - ObjectCollision.BUFFER*2;
+			double maxY = index.getBottom(object) - ObjectCollision.BUFFER*2;
+
+			// closest point of the box
+			double normalX = x - Math.max(minX, Math.min(maxX, x));
+			double normalY = y - Math.max(minY, Math.min(maxY, y));
+			double distance = Math.sqrt(normalX*normalX + normalY*normalY);
+
+			if (distance > reach)
+				continue;
+
+			// the corners of bushes and ponds are open ground, so an object only counts
+			// if some of its mask is within reach
+			if (!ObjectCollision.touches(map, object, x + ObjectCollision.BUFFER - reach, y + ObjectCollision.BUFFER - reach,
+										 x + Unit.SIZE - ObjectCollision.BUFFER + reach, y + Unit.SIZE - ObjectCollision.BUFFER + reach))
+				continue;
+
+			// a unit right on the edge (or pushed inside) mustn't go any further in
+			// through the nearest side
+			if (distance < EPSILON)
+			{
+				double depth = x - minX;
+				normalX = -1;
+				normalY = 0;
+
+				if (maxX - x < depth)
+				{
+					depth = maxX - x;
+					normalX = 1;
+				}
+				if (y - minY < depth)
+				{
+					depth = y - minY;
+					normalX = 0;
+					normalY = -1;
+				}
+				if (maxY - y < depth)
+				{
+					normalX = 0;
+					normalY = 1;
+				}
+
+				distance = 0;
+			}
+			else
+			{
+				normalX /= distance;
+				normalY /= distance;
+			}
+
+			planes.add(-normalX*distance/OBSTACLE_HORIZON, -normalY*distance/OBSTACLE_HORIZON, normalY, -normalX);
+		}
+	}
+
+	// addPlane()
+	// Adds the half-plane of velocities that keeps the unit (entity e) from running into
+	// the other unit within TIME_HORIZON ticks.  A unit that is standing still won't move
+	// out of the way, so the moving unit takes all of the effort instead of half.
+	private void addPlane(EntityStore entities, int e, int other)
+	{
+		double positionX = entities.x[other] - entities.x[e];
+		double positionY = entities.y[other] - entities.y[e];
+		double velocityX = entities.velocityX[e] - entities.velocityX[other];
+		double velocityY = entities.velocityY[e] - entities.velocityY[other];
+		double distanceSq = positionX*positionX + positionY*positionY;
+		double combinedRadius = RADIUS*2;
+		double combinedRadiusSq = combinedRadius*combinedRadius;
+		double share = entities.steering[other] ? 0.5 : 1;
+
+		double directionX;
+		double directionY;
+		double uX;
+		double uY;
+
+		if (distanceSq > combinedRadiusSq)
+		{
+			// vector from the cutoff center to the relative velocity
+			double wX = velocityX - positionX/TIME_HORIZON;
+			double wY = velocityY - positionY/TIME_HORIZON;
+			double wLengthSq = wX*wX + wY*wY;
+			double dot = wX*positionX + wY*positionY;
+
+			if (dot < 0 && dot*dot > combinedRadiusSq*wLengthSq)
+			{
+				// project on the cutoff circle
+				double wLength = Math.sqrt(wLengthSq);
+				double unitX = wX / wLength;
+				double unitY = wY / wLength;
+
+				directionX = unitY;
+				directionY = -unitX;
+				uX = (combinedRadius/TIME_HORIZON - wLength)*unitX;
+				uY = (combinedRadius/TIME_HORIZON - wLength)*unitY;
+			}
+			else
+			{
+				// project on the nearer leg of the cone
+				double leg = Math.sqrt(distanceSq - combinedRadiusSq);
+
+				if (positionX*wY - positionY*wX > 0)
+				{
+					directionX = (positionX*leg - positionY*combinedRadius) / distanceSq;
+					directionY = (positionX*combinedRadius + positionY*leg) / distanceSq;
+				}
+				else
+				{
+					directionX = -(positionX*leg + positionY*combinedRadius) / distanceSq;
+					directionY = -(-positionX*combinedRadius + positionY*leg) / distanceSq;
+				}
+
+				double along = velocityX*directionX + velocityY*directionY;
+				uX = along*directionX - velocityX;
+				uY = along*directionY - velocityY;
+			}
+		}
+		else
+		{
+			// already overlapping - get apart within the next tick.  Units exactly on top
+			// of each other are split along an arbitrary axis.
+			double wX = velocityX - positionX;
+			double wY = velocityY - positionY;
+			double wLength = Math.sqrt(wX*wX + wY*wY);
+			if (wLength < EPSILON)
+			{
+				wX = 1;
+				wY = 0;
+				wLength = 1;
+			}
+			double unitX = wX / wLength;
+			double unitY = wY / wLength;
+
+			directionX = unitY;
+			directionY = -unitX;
+			uX = (combinedRadius - wLength)*unitX;
+			uY = (combinedRadius - wLength)*unitY;
+		}
+
+		planes.add(entities.velocityX[e] + share*uX, entities.velocityY[e] + share*uY, directionX, directionY);
+	}
+
+	// solveLine()
+	// Finds the velocity on the edge of half-plane line that is inside the earlier
+	// half-planes and the speed limit and closest to the preferred velocity (or furthest
+	// along it, if toward is set).  Returns false if there isn't one.
+	private boolean solveLine(HalfPlanes set, int line, double maxSpeed, double preferredX, double preferredY, boolean toward)
+	{
+		double pointX = set.pointX[line];
+		double pointY = set.pointY[line];
+		double directionX = set.directionX[line];
+		double directionY = set.directionY[line];
+
+		double dot = pointX*directionX + pointY*directionY;
+		double discriminant = dot*dot + maxSpeed*maxSpeed - (pointX*pointX + pointY*pointY);
+		if (discriminant < 0)
+			return false;
+
+		double root = Math.sqrt(discriminant);
+		double tLeft = -dot - root;
+		double tRight = -dot + root;
+
+		for (int i = 0; i < line; i++)
+		{
+			double denominator = directionX*set.directionY[i] - directionY*set.directionX[i];
+			double numerator = set.directionX[i]*(pointY - set.pointY[i]) - set.directionY[i]*(pointX - set.pointX[i]);
+
+			// parallel lines
+			if (Math.abs(denominator) <= EPSILON)
+			{
+				if (numerator < 0)
+					return false;
+				continue;
+			}
+
+			double t = numerator / denominator;
+			if (denominator >= 0)
+				tRight = Math.min(tRight, t);
+			else
+				tLeft = Math.max(tLeft, t);
+
+			if (tLeft > tRight)
+				return false;
+		}
+
+		double t;
+		if (toward)
+			t = preferredX*directionX + preferredY*directionY > 0 ? tRight : tLeft;
+		else
+			t = Math.max(tLeft, Math.min(tRight, directionX*(preferredX - pointX) + directionY*(preferredY - pointY)));
+
+		resultX = pointX + t*directionX;
+		resultY = pointY + t*directionY;
+		return true;
+	}
+
+	// solve()
+	// Finds the velocity within the speed limit and all the half-planes that is closest to
+	// the preferred velocity, adding the half-planes one at a time.  Returns the number of
+	// half-planes, or the first one that couldn't be met.
+	private int solve(HalfPlanes set, double maxSpeed, double preferredX, double preferredY, boolean toward)
+	{
+		double lengthSq = preferredX*preferredX + preferredY*preferredY;
+
+		if (toward)
+		{
+			resultX = preferredX*maxSpeed;
+			resultY = preferredY*maxSpeed;
+		}
+		else if (lengthSq > maxSpeed*maxSpeed)
+		{
+			double length = Math.sqrt(lengthSq);
+			resultX = preferredX / length * maxSpeed;
+			resultY = preferredY / length * maxSpeed;
+		}
+		else
+		{
+			resultX = preferredX;
+			resultY = preferredY;
+		}
+
+		for (int i = 0; i < set.count; i++)
+		{
+			if (set.directionX[i]*(set.pointY[i] - resultY) - set.directionY[i]*(set.pointX[i] - resultX) > 0)
+			{
+				double oldX = resultX;
+				double oldY = resultY;
+
+				if (!solveLine(set, i, maxSpeed, preferredX, preferredY, toward))
+				{
+					resultX = oldX;
+					resultY = oldY;
+					return i;
+				}
+			}
+		}
+
+		return set.count;
+	}
+
+	// solveCrowded()
+	// Used when the unit is hemmed in so tightly that no velocity meets every half-plane.
+	// Picks the velocity that breaks the half-planes for other units by as little as
+	// possible instead, still keeping to the first numObstacles.
+	private void solveCrowded(int numObstacles, int first, double maxSpeed)
+	{
+		double distance = 0;
+
+		for (int i = first; i < planes.count; i++)
+		{
+			if (planes.directionX[i]*(planes.pointY[i] - resultY) - planes.directionY[i]*(planes.pointX[i] - resultX) <= distance)
+				continue;
+
+			projected.clear();
+			for (int j = 0; j < numObstacles; j++)
+				projected.add(planes.pointX[j], planes.pointY[j], planes.directionX[j], planes.directionY[j]);
+
+			for (int j = numObstacles; j < i; j++)
+			{
+				double determinant = planes.directionX[i]*planes.directionY[j] - planes.directionY[i]*planes.directionX[j];
+				double pointX;
+				double pointY;
+
+				if (Math.abs(determinant) <= EPSILON)
+				{
+					// parallel lines pointing the same way add nothing
+					if (planes.directionX[i]*planes.directionX[j] + planes.directionY[i]*planes.directionY[j] > 0)
+						continue;
+
+					pointX = 0.5*(planes.pointX[i] + planes.pointX[j]);
+					pointY = 0.5*(planes.pointY[i] + planes.pointY[j]);
+				}
+				else
+				{
+					double t = (planes.directionX[j]*(planes.pointY[i] - planes.pointY[j]) -
+								planes.directionY[j]*(planes.pointX[i] - planes.pointX[j])) / determinant;
+					pointX = planes.pointX[i] + t*planes.directionX[i];
+					pointY = planes.pointY[i] + t*planes.directionY[i];
+				}
+
+				double directionX = planes.directionX[j] - planes.directionX[i];
+				double directionY = planes.directionY[j] - planes.directionY[i];
+				double length = Math.sqrt(directionX*directionX + directionY*directionY);
+				projected.add(pointX, pointY, directionX / length, directionY / length);
+			}
+
+			double oldX = resultX;
+			double oldY = resultY;
+
+			if (solve(projected, maxSpeed, -planes.directionY[i], planes.directionX[i], true) < projected.count)
+			{
+				// can only fail through rounding, in which case keep the last answer
+				resultX = oldX;
+				resultY = oldY;
+			}
+
+			distance = planes.directionX[i]*(planes.pointY[i] - resultY) - planes.directionY[i]*(planes.pointX[i] - resultX);
+		}
+	}
+
+	// HalfPlanes
+	// A growable list of half-planes, each a point on its edge and the direction along
+	// the edge.  Velocities on the left of the direction are allowed.
+	private static class HalfPlanes
+	{
+		double pointX[];
+		double pointY[];
+		double directionX[];
+		double directionY[];
+		int count;
+
+		HalfPlanes(int capacity)
+		{
+			pointX = new double[capacity];
+			pointY = new double[capacity];
+			directionX = new double[capacity];
+			directionY = new double[capacity];
+		}
+
+		void add(double px, double py, double dx, double dy)
+		{
+			if (count == pointX.length)
+			{
+				pointX = Arrays.copyOf(pointX, count*2);
+				pointY = Arrays.copyOf(pointY, count*2);
+				directionX = Arrays.copyOf(directionX, count*2);
+				directionY = Arrays.copyOf(directionY, count*2);
+			}
+
+			pointX[count] = px;
+			pointY[count] = py;
+			directionX[count] = dx;
+			directionY[count] = dy;
+			count++;
+		}
+
+		void clear()
+		{
+			count = 0;
+		}
+	}
+}
@@ -28,9 +28,12 @@ public class Map
 	public static final int WALL_CAP = 8;
 	
 	// constants
-	public static final int MAX_OBJECTS = 600;
 	public static final int SIZE = 3072;
 	
+	// the part of the screen the map is visible in (the menu bar covers the rest)
+	public static final int VIEW_WIDTH = 1024;
+	public static final int VIEW_HEIGHT = 624;
+	
 	// images
 	private BufferedImage backdrop;
 	private BufferedImageOp op;
@@ -39,66 +42,213 @@ public class Map
 	private Sprite objects[];
 	private int numObjects;
 	private int typeList[];
+	private CollisionMask masks[];
+	private ObjectIndex objectIndex;
+	private TerrainCost terrainCost;
+	private PathGrid pathGrid;
+	private PathHierarchy pathHierarchy;
+	private NavMesh navMesh;
+	private int visible[];
+	private TerrainCache terrainCache;
 	
 	// Map() - class constructor
 	// Initializes all the member variables and loads the map from a file (specified
-	// by the file parameter)
+	// by the file parameter).  If the map has been compiled (see MapCompiler) the
+	// objects, index, grid and path structures are read from the compiled map instead
+	// of being worked out again.
 	public Map(GamePlay parent, String file) throws IOException
 	{
 		objectGroup = new SpriteGroup("Objects");
 		backdrop = parent.getImage("Graphics/Environment/backdrop.jpg");
-		objects = new Sprite[MAX_OBJECTS];
-		typeList = new int[MAX_OBJECTS];
-		
-		BufferedReader infile = new BufferedReader(new FileReader(file));
 		
-		numObjects = Integer.parseInt(infile.readLine());
+		MapArtifact artifact = null;
+		if (MapArtifact.isCurrent(file))
+		{
+			try
+			{
+				artifact = new MapArtifact(MapArtifact.getFile(file));
+				if (!loadObjects(parent, artifact.getObjectIndex()))
+					artifact = null;
+			}
+			catch (IOException e)
+			{
+				// a damaged compiled map is passed over for the text map until
+				// MapCompiler is run again
+			}
+		}
 		
-		for (int i = 0; i < numObjects; i++)
+		if (artifact == null)
 		{
-			infile.readLine();
-			typeList[i] = Integer.parseInt(infile.readLine());
-			if (typeList[i] == TREE)
-				objects[i] = new Sprite(parent.getImage("Graphics/Environment/tree.png"), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));
-			else if (typeList[i] == LAKE)
-				objects[i] = new Sprite(parent.getImage("Graphics/Environment/lake.png"), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));
-			else if (typeList[i] == POND)
-				objects[i] = new Sprite(parent.getImage("Graphics/Environment/pond.png"), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));
-			else if (typeList[i] == BUSH)
-				objects[i] = new Sprite(parent.getImage("Graphics/Environment/bush.png"), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));		
-			else if (typeList[i] == WALL_NORTH)
-				objects[i] = new Sprite(parent.getImage("Graphics/Environment/wallNorth.png"), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));
-			else if (typeList[i] == WALL_CAP)
-				objects[i] = new Sprite(parent.getImage("Graphics/Environment/wallCap.png"), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));		
-			else if (typeList[i] == PATH_NORTH)
-				objects[i] = new Sprite(parent.getImage("Graphics/Environment/pathNorth.png"), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));
-			else if (typeList[i] == PATH_EAST)
-				objects[i] = new Sprite(parent.getImage("Graphics/Environment/pathEast.png"), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));
+			BufferedReader infile = new BufferedReader(new FileReader(file));
+			
+			numObjects = Integer.parseInt(infile.readLine());
+			objects = new Sprite[numObjects];
+			typeList = new int[numObjects];
+			
+			for (int i = 0; i < numObjects; i++)
+			{
+				infile.readLine();
+				typeList[i] = Integer.parseInt(infile.readLine());
+				objects[i] = new Sprite(parent.getImage(getImageFile(typeList[i])), Integer.parseInt(infile.readLine()), Integer.parseInt(infile.readLine()));
+			}
+			
+			infile.close();
+			
+			// objects never move, so the spatial index and everything built on it only
+			// has to be worked out once
+			int x[] = new int[numObjects];
+			int y[] = new int[numObjects];
+			int width[] = new int[numObjects];
+			int height[] = new int[numObjects];
+			
+			for (int i = 0; i < numObjects; i++)
+			{
+				x[i] = (int)objects[i].getX();
+				y[i] = (int)objects[i].getY();
+				width[i] = objects[i].getWidth();
+				height[i] = objects[i].getHeight();
+			}
+			
+			artifact = new MapArtifact(x, y, width, height, typeList, numObjects);
+		}
 		
-			// Roads do not obstruct unit pathing so don't add them to the collision group
-			if (typeList[i] != PATH_NORTH && typeList[i] != PATH_EAST)
+		// Roads do not obstruct unit pathing so don't add them to the collision group
+		for (int i = 0; i < numObjects; i++)
+			if (isObstacle(typeList[i]))
 				objectGroup.add(objects[i]);
+		
+		// every object of a type shares the type's image, so it shares one mask too
+		masks = new CollisionMask[WALL_CAP + 1];
+		for (int i = 0; i < numObjects; i++)
+			if (isObstacle(typeList[i]) && masks[typeList[i]] == null)
+				masks[typeList[i]] = new CollisionMask(objects[i].getImage());
+		
+		objectIndex = artifact.getObjectIndex();
+		terrainCost = artifact.getTerrainCost();
+		pathGrid = artifact.getPathGrid();
+		pathHierarchy = artifact.getPathHierarchy();
+		navMesh = artifact.getNavMesh();
+		visible = new int[numObjects];
+		
+		// the world never changes, so draw it once up front
+		if (!parent.isHeadless())
+			terrainCache = new TerrainCache(this, backdrop);
+	}
+	
+	// loadObjects()
+	// Creates the object sprites from a compiled object table.  Returns false if an
+	// image is not the size it was when the map was compiled, in which case the map
+	// has to be loaded from its text file instead.
+	private boolean loadObjects(GamePlay parent, ObjectIndex index)
+	{
+		objects = new Sprite[index.getNumObjects()];
+		typeList = new int[index.getNumObjects()];
+		
+		for (int i = 0; i < index.getNumObjects(); i++)
+		{
+			typeList[i] = index.getType(i);
+			objects[i] = new Sprite(parent.getImage(getImageFile(typeList[i])), index.getLeft(i), index.getTop(i));
+			
+			if (objects[i].getWidth() != index.getRight(i) - index.getLeft(i) || objects[i].getHeight() != index.getBottom(i) - index.getTop(i))
+				return false;
 		}
 		
-		infile.close();
+		numObjects = index.getNumObjects();
+		return true;
+	}
+	
+	// getImageFile()
+	// returns the image file objects of the given type are drawn with
+	public static String getImageFile(int type)
+	{
+		if (type == TREE)
+			return "Graphics/Environment/tree.png";
+		else if (type == LAKE)
+			return "Graphics/Environment/lake.png";
+		else if (type == POND)
+			return "Graphics/Environment/pond.png";
+		else if (type == BUSH)
+			return "Graphics/Environment/bush.png";
+		else if (type == WALL_NORTH)
+			return "Graphics/Environment/wallNorth.png";
+		else if (type == WALL_CAP)
+			return "Graphics/Environment/wallCap.png";
+		else if (type == PATH_NORTH)
+			return "Graphics/Environment/pathNorth.png";
+		else if (type == PATH_EAST)
+			return "Graphics/Environment/pathEast.png";
+		
+		return null;
+	}
+	
+	// isObstacle()
+	// Returns true if objects of the given type block units.  Roads do not.
+	public static boolean isObstacle(int type)
+	{
+		return type != PATH_NORTH && type != PATH_EAST;
 	}
 	
 	// render()
-	// Draws the map.
+	// Draws the part of the map the camera can see.  Normally this is a few pre-drawn
+	// chunks from the terrain cache.  Without the cache, backdrop tiles and objects that
+	// are entirely off screen are skipped.
 	public void render(Graphics2D g, Point camera)
 	{
+		if (terrainCache != null)
+		{
+			terrainCache.render(g, camera);
+			return;
+		}
+		
 		for (int x = 0; x < SIZE / 1024; x++)
 			for (int y = 0; y < SIZE / 768; y++)
+			{
+				if (x*1024 >= camera.x + VIEW_WIDTH || x*1024 + 1024 <= camera.x ||
+					y*768 >= camera.y + VIEW_HEIGHT || y*768 + 768 <= camera.y)
+					continue;
+				
 				g.drawImage(backdrop, op, x*1024 - camera.x, y*768 - camera.y);
+			}
 		
-		for (int i = 0; i < numObjects; i++)
-			objects[i].render(g, (int)objects[i].getX() - camera.x, (int)objects[i].getY() - camera.y);			
+		// objects come back in map order, so they overlap the same way they always have
+		int count = objectIndex.query(camera.x, camera.y, VIEW_WIDTH, VIEW_HEIGHT, visible);
+		
+		for (int i = 0; i < count; i++)
+		{
+			Sprite object = objects[visible[i]];
+			object.render(g, (int)object.getX() - camera.x, (int)object.getY() - camera.y);
+		}
 	}
 	
 	// ******
 	// Getters
 	// ******
 	
+	public ObjectIndex getObjectIndex()
+	{
+		return objectIndex;
+	}
+	
+	public TerrainCost getTerrainCost()
+	{
+		return terrainCost;
+	}
+	
+	public PathGrid getPathGrid()
+	{
+		return pathGrid;
+	}
+	
+	public PathHierarchy getPathHierarchy()
+	{
+		return pathHierarchy;
+	}
+	
+	public NavMesh getNavMesh()
+	{
+		return navMesh;
+	}
+	
 	public int getNumObjects()
 	{
 		return numObjects;
@@ -119,4 +269,13 @@ public class Map
 		else
 			return typeList[index];
 	}
+	
+	// returns the collision mask of an obstacle, or null if it isn't one
+	public CollisionMask getMask(int index)
+	{
+		if (index < 0 || index >= numObjects)
+			return null;
+		else
+			return masks[typeList[index]];
+	}
 }
\ No newline at end of file
@@ -0,0 +1,260 @@
+/*
+ * Name of code: MapArtifact.java
+ * Description:  Everything about a map that can be worked out before the game runs - the
+ *				 object table and static spatial index, the walkability grid and the
+ *				 path structures built on it.  Built from a map's objects, or read back
+ *				 from the binary file the MapCompiler writes next to a text map (the same
+ *				 name ending in EXTENSION).  The file starts with MAGIC, VERSION and the
+ *				 constants the structures were built with, and ends with a CRC32 of the
+ *				 data, so a file from another version or that has been damaged is turned
+ *				 down instead of loaded.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+public class MapArtifact
+{
+	// constants
+	public static final int MAGIC = 0x4E454D50;
+	public static final int VERSION = 1;
+	public static final String EXTENSION = ".map";
+
+	private ObjectIndex objectIndex;
+	private TerrainCost terrainCost;
+	private PathGrid pathGrid;
+	private PathHierarchy pathHierarchy;
+	private NavMesh navMesh;
+
+	// MapArtifact() - class constructor
+	// Builds everything from the objects' bounds (x, y, width, height) and types
+	public MapArtifact(int x[], int y[], int width[], int height[], int typeList[], int count)
+	{
+		objectIndex = new ObjectIndex(x, y, width, height, typeList, count);
+		terrainCost = new TerrainCost(objectIndex);
+		pathGrid = new PathGrid(objectIndex, terrainCost);
+		pathHierarchy = new PathHierarchy(pathGrid);
+		navMesh = new NavMesh(objectIndex, terrainCost);
+	}
+
+	// MapArtifact() - class constructor
+	// Reads a compiled map.  Throws an IOException if the file can't be read, isn't a
+	// compiled map, was compiled by a different version or doesn't match its checksum.
+	public MapArtifact(String file) throws IOException
+	{
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(Paths.get(file)));
+
+		try
+		{
+			if (in.getInt() != MAGIC)
+				throw new IOException(file + " is not a compiled map");
+			if (in.getInt() != VERSION)
+				throw new IOException(file + " was compiled by a different version");
+			if (!Arrays.equals(readInts(in), getSettings()))
+				throw new IOException(file + " was compiled with different settings");
+
+			int length = in.getInt();
+			if (length < 0 || length + 8 != in.remaining())
+				throw new IOException(file + " is the wrong length");
+
+			CRC32 checksum = new CRC32();
+			checksum.update(in.array(), in.position(), length);
+			if (in.getLong(in.position() + length) != checksum.getValue())
+				throw new IOException(file + " is damaged (checksum mismatch)");
+
+			objectIndex = new ObjectIndex(in);
+			pathGrid = new PathGrid(in);
+			pathHierarchy = new PathHierarchy(pathGrid, in);
+			navMesh = new NavMesh(in);
+
+			if (in.remaining() != 8)
+				throw new IOException(file + " has data left over");
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException(file + " ends early");
+		}
+
+		// the terrain costs are quicker to work out again than to read
+		terrainCost = new TerrainCost(objectIndex);
+	}
+
+	// write()
+	// Writes the artifact to a file, to be read back by the constructor above
+	public void write(String file) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		objectIndex.write(out);
+		pathGrid.write(out);
+		pathHierarchy.write(out);
+		navMesh.write(out);
+		out.flush();
+
+		byte data[] = bytes.toByteArray();
+		CRC32 checksum = new CRC32();
+		checksum.update(data);
+
+		DataOutputStream outfile = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+		try
+		{
+			outfile.writeInt(MAGIC);
+			outfile.writeInt(VERSION);
+			writeInts(outfile, getSettings());
+			outfile.writeInt(data.length);
+			outfile.write(data);
+			outfile.writeLong(checksum.getValue());
+		}
+		finally
+		{
+			outfile.close();
+		}
+	}
+
+	// getFile()
+	// returns the name of the compiled map for a text map
+	public static String getFile(String mapFile)
+	{
+		if (mapFile.endsWith(".txt"))
+			return mapFile.substring(0, mapFile.length() - 4) + EXTENSION;
+
+		return mapFile + EXTENSION;
+	}
+
+	// isCurrent()
+	// Returns true if the text map has a compiled map that is at least as new as it
+	public static boolean isCurrent(String mapFile)
+	{
+		File compiled = new File(getFile(mapFile));
+
+		return compiled.isFile() && compiled.lastModified() >= new File(mapFile).lastModified();
+	}
+
+	// getSettings()
+	// Returns the constants that change what gets built, so files built with others can
+	// be turned down
+	private static int[] getSettings()
+	{
+		int settings[] =
+		{
+			Map.SIZE, Unit.SIZE, ObjectCollision.BUFFER, ObjectIndex.CELL_SIZE, PathGrid.CELL_SIZE,
+			PathHierarchy.CLUSTER_SIZE, PathHierarchy.WIDE_ENTRANCE, NavMesh.CLEARANCE,
+			TerrainCost.CELL_SIZE, TerrainCost.PLAIN, TerrainCost.ROAD
+		};
+
+		return settings;
+	}
+
+	// writeInts()
+	// writes an array's length, then its values
+	public static void writeInts(DataOutputStream out, int values[]) throws IOException
+	{
+		out.writeInt(values.length);
+		for (int i = 0; i < values.length; i++)
+			out.writeInt(values[i]);
+	}
+
+	// readInts()
+	// reads an array written by writeInts()
+	public static int[] readInts(ByteBuffer in) throws IOException
+	{
+		int values[] = new int[readLength(in, 4)];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + values.length*4);
+
+		return values;
+	}
+
+	// writeBytes()
+	// writes an array's length, then its values
+	public static void writeBytes(DataOutputStream out, byte values[]) throws IOException
+	{
+		out.writeInt(values.length);
+		out.write(values);
+	}
+
+	// readBytes()
+	// reads an array written by writeBytes()
+	public static byte[] readBytes(ByteBuffer in) throws IOException
+	{
+		byte values[] = new byte[readLength(in, 1)];
+		in.get(values);
+
+		return values;
+	}
+
+	// writeBooleans()
+	// writes an array's length, then its values a byte each
+	public static void writeBooleans(DataOutputStream out, boolean values[]) throws IOException
+	{
+		out.writeInt(values.length);
+		for (int i = 0; i < values.length; i++)
+			out.writeBoolean(values[i]);
+	}
+
+	// readBooleans()
+	// reads an array written by writeBooleans()
+	public static boolean[] readBooleans(ByteBuffer in) throws IOException
+	{
+		boolean values[] = new boolean[readLength(in, 1)];
+		for (int i = 0; i < values.length; i++)
+			values[i] = in.get() != 0;
+
+		return values;
+	}
+
+	// readLength()
+	// reads the length of an array of values size bytes each, turning down any that
+	// would run past the end of the data
+	private static int readLength(ByteBuffer in, int size) throws IOException
+	{
+		int length = in.getInt();
+		if (length < 0 || length > in.remaining() / size)
+			throw new IOException("bad array length " + length);
+
+		return length;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	public ObjectIndex getObjectIndex()
+	{
+		return objectIndex;
+	}
+
+	public TerrainCost getTerrainCost()
+	{
+		return terrainCost;
+	}
+
+	public PathGrid getPathGrid()
+	{
+		return pathGrid;
+	}
+
+	public PathHierarchy getPathHierarchy()
+	{
+		return pathHierarchy;
+	}
+
+	public NavMesh getNavMesh()
+	{
+		return navMesh;
+	}
+}
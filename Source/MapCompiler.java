@@ -0,0 +1,182 @@
+/*
+ * Name of code: MapCompiler.java
+ * Description:  Compiles text maps ahead of time.  Each map's objects are read, sized
+ *				 from their images, and everything the game would otherwise work out
+ *				 when the map loads - the object table, spatial index, walkability grid
+ *				 and path structures - is written to a MapArtifact beside the text map,
+ *				 which Map loads instead while it is newer than the text.  With no map
+ *				 files given it compiles every Data/map*.txt and the Map Editor's
+ *				 current.txt.
+ *				 Usage: java MapCompiler [map file ...]
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class MapCompiler
+{
+	// constants
+	public static final String MAP_DIRECTORY = "Data";
+	public static final String EDITOR_MAP = "Map Editor/current.txt";
+
+	// image sizes by file, so each image is only read once
+	private static HashMap<String, int[]> imageSizes = new HashMap<String, int[]>();
+
+	// main()
+	// Compiles the maps given, or every map there is.  Exits with an error if any map
+	// fails to compile.
+	public static void main(String[] args)
+	{
+		System.setProperty("java.awt.headless", "true");
+
+		ArrayList<String> files = new ArrayList<String>();
+
+		if (args.length > 0)
+			files.addAll(Arrays.asList(args));
+		else
+		{
+			String names[] = new File(MAP_DIRECTORY).list();
+			if (names != null)
+			{
+				Arrays.sort(names);
+				for (int i = 0; i < names.length; i++)
+					if (names[i].startsWith("map") && names[i].endsWith(".txt"))
+						files.add(MAP_DIRECTORY + "/" + names[i]);
+			}
+
+			if (new File(EDITOR_MAP).isFile())
+				files.add(EDITOR_MAP);
+		}
+
+		if (files.isEmpty())
+		{
+			System.out.println("Usage: java MapCompiler [map file ...]");
+			System.exit(1);
+		}
+
+		boolean failed = false;
+
+		for (int i = 0; i < files.size(); i++)
+		{
+			String file = files.get(i);
+
+			try
+			{
+				long start = System.currentTimeMillis();
+				int numObjects = compile(file);
+				String compiled = MapArtifact.getFile(file);
+
+				System.out.println(file + " -> " + compiled + ": " + numObjects + " objects, " +
+								   new File(compiled).length() + " bytes, " + (System.currentTimeMillis() - start) + "ms");
+			}
+			catch (Exception e)
+			{
+				System.out.println(file + ": " + e.getMessage());
+				failed = true;
+			}
+		}
+
+		if (failed)
+			System.exit(1);
+	}
+
+	// compile()
+	// Compiles one text map and returns the number of objects on it
+	public static int compile(String file) throws IOException
+	{
+		BufferedReader infile = new BufferedReader(new FileReader(file));
+		int x[];
+		int y[];
+		int width[];
+		int height[];
+		int types[];
+		int numObjects;
+
+		try
+		{
+			numObjects = readNumber(infile);
+			x = new int[numObjects];
+			y = new int[numObjects];
+			width = new int[numObjects];
+			height = new int[numObjects];
+			types = new int[numObjects];
+
+			// each object is an [Object] line, then its type, x and y
+			for (int i = 0; i < numObjects; i++)
+			{
+				infile.readLine();
+				types[i] = readNumber(infile);
+				x[i] = readNumber(infile);
+				y[i] = readNumber(infile);
+
+				String imageFile = Map.getImageFile(types[i]);
+				if (imageFile == null)
+					throw new IOException("object " + i + " has unknown type " + types[i]);
+
+				int size[] = getImageSize(imageFile);
+				width[i] = size[0];
+				height[i] = size[1];
+			}
+		}
+		finally
+		{
+			infile.close();
+		}
+
+		new MapArtifact(x, y, width, height, types, numObjects).write(MapArtifact.getFile(file));
+
+		return numObjects;
+	}
+
+	// readNumber()
+	// reads a line holding a single number
+	private static int readNumber(BufferedReader infile) throws IOException
+	{
+		String line = infile.readLine();
+		if (line == null)
+			throw new IOException("map file ends early");
+
+		try
+		{
+			return Integer.parseInt(line.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException("not a map file (" + e.getMessage() + ")");
+		}
+	}
+
+	// getImageSize()
+	// Returns the width and height of an image, read the way headless runs read it so
+	// maps compile to match those runs
+	private static int[] getImageSize(String imageFile) throws IOException
+	{
+		int size[] = imageSizes.get(imageFile);
+
+		if (size == null)
+		{
+			BufferedImage image;
+			try
+			{
+				image = Headless.getImage(imageFile);
+			}
+			catch (IllegalArgumentException e)
+			{
+				throw new IOException(e.getMessage());
+			}
+
+			size = new int[] { image.getWidth(), image.getHeight() };
+			imageSizes.put(imageFile, size);
+		}
+
+		return size;
+	}
+}
@@ -0,0 +1,171 @@
+/*
+ * Name of code: Minimap.java
+ * Description:  Keeps a finished copy of the minimap - the map picture with the fog of war
+ *				 and unit blips already drawn on it.  Each fog cell is a 3x3 square, and a
+ *				 square is only redrawn when its fog changes or a unit moves into or out of
+ *				 it, so drawing the minimap each frame is a single image.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.Arrays;
+
+public class Minimap
+{
+	// constants
+	public static final int CELLS = Map.SIZE / GamePlay.FOG_SIZE;
+	public static final int CELL_SIZE = 3;
+
+	// where the cells start on the minimap picture
+	public static final int BORDER = 4;
+
+	private GamePlay gamePlay;
+	private BufferedImage background;
+	private BufferedImage image;
+	private Graphics2D graphics;
+
+	// what each cell is showing
+	private int fog[][];
+	private int friendlyCount[][];
+	private int enemyCount[][];
+
+	// the cell each unit was last drawn in, or -1 if it isn't drawn
+	private int friendlyCells[];
+	private int enemyCells[];
+
+	// Minimap() - class constructor
+	// Everything starts unexplored, as the fog does
+	public Minimap(GamePlay parent, BufferedImage minimap)
+	{
+		GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+
+		gamePlay = parent;
+		background = minimap;
+		image = config.createCompatibleImage(minimap.getWidth(), minimap.getHeight(), Transparency.OPAQUE);
+		graphics = image.createGraphics();
+		graphics.drawImage(background, 0, 0, null);
+
+		fog = new int[CELLS][CELLS];
+		friendlyCount = new int[CELLS][CELLS];
+		enemyCount = new int[CELLS][CELLS];
+		friendlyCells = new int[0];
+		enemyCells = new int[0];
+
+		for (int x = 0; x < CELLS; x++)
+			for (int y = 0; y < CELLS; y++)
+				drawCell(x, y);
+	}
+
+	// setFog()
+	// Called whenever a fog cell changes
+	public void setFog(int x, int y, int value)
+	{
+		fog[x][y] = value;
+		drawCell(x, y);
+	}
+
+	// updateUnits()
+	// Moves the blip of every unit that has changed cells since the last update
+	public void updateUnits()
+	{
+		friendlyCells = grow(friendlyCells, gamePlay.getNumFriendlyUnits());
+		enemyCells = grow(enemyCells, gamePlay.getNumEnemyUnits());
+
+		for (int i = 0; i < gamePlay.getNumFriendlyUnits(); i++)
+			friendlyCells[i] = moveUnit(gamePlay.friendlyUnits[i], friendlyCells[i], friendlyCount);
+
+		for (int i = 0; i < gamePlay.getNumEnemyUnits(); i++)
+			enemyCells[i] = moveUnit(gamePlay.enemyUnits[i], enemyCells[i], enemyCount);
+	}
+
+	// grow()
+	// Returns the cells array with room for count units.  Units that are new to the
+	// minimap aren't in any cell yet.
+	private int[] grow(int cells[], int count)
+	{
+		if (count <= cells.length)
+			return cells;
+
+		int grown[] = Arrays.copyOf(cells, Math.max(count, cells.length*2));
+		Arrays.fill(grown, cells.length, grown.length, -1);
+
+		return grown;
+	}
+
+	// moveUnit()
+	// Takes a unit out of the count for its old cell and adds it to its new one, then
+	// returns the new cell.  Dead units aren't in any cell.
+	private int moveUnit(Unit unit, int oldCell, int count[][])
+	{
+		int cell = -1;
+
+		if (unit.isAlive())
+		{
+			int xLoc = clamp((int)((unit.sprite.getX() + Unit.SIZE/2)/GamePlay.FOG_SIZE));
+			int yLoc = clamp((int)((unit.sprite.getY() + Unit.SIZE/2)/GamePlay.FOG_SIZE));
+			cell = xLoc*CELLS + yLoc;
+		}
+
+		if (cell == oldCell)
+			return cell;
+
+		if (oldCell >= 0)
+		{
+			count[oldCell / CELLS][oldCell % CELLS]--;
+			drawCell(oldCell / CELLS, oldCell % CELLS);
+		}
+
+		if (cell >= 0)
+		{
+			count[cell / CELLS][cell % CELLS]++;
+			drawCell(cell / CELLS, cell % CELLS);
+		}
+
+		return cell;
+	}
+
+	// drawCell()
+	// Redraws one cell: friendly units over visible enemies over unexplored fog over the
+	// map picture
+	private void drawCell(int x, int y)
+	{
+		int left = BORDER + x*CELL_SIZE;
+		int top = BORDER + y*CELL_SIZE;
+
+		if (friendlyCount[x][y] > 0)
+			graphics.setColor(Color.CYAN);
+		else if (enemyCount[x][y] > 0 && fog[x][y] == 2)
+			graphics.setColor(Color.RED);
+		else if (fog[x][y] == 0)
+			graphics.setColor(Color.BLACK);
+		else
+		{
+			graphics.drawImage(background, left, top, left + CELL_SIZE, top + CELL_SIZE,
+							   left, top, left + CELL_SIZE, top + CELL_SIZE, null);
+			return;
+		}
+
+		graphics.fillRect(left, top, CELL_SIZE, CELL_SIZE);
+	}
+
+	// render()
+	// draws the minimap with its top left corner at x,y
+	public void render(Graphics2D g, int x, int y)
+	{
+		g.drawImage(image, x, y, null);
+	}
+
+	// clamp()
+	// keeps a cell coordinate on the map
+	private int clamp(int c)
+	{
+		if (c < 0)
+			return 0;
+		if (c >= CELLS)
+			return CELLS - 1;
+
+		return c;
+	}
+}
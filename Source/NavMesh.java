@@ -0,0 +1,886 @@
+/*
+ * Name of code: NavMesh.java
+ * Description:  Navigation mesh built from the map objects.  Like the PathGrid it is in
+ *				 unit position space (sprite top left corners), with every obstacle grown
+ *				 by the unit's size, so a unit of Unit.SIZE can stand anywhere on the
+ *				 mesh.  Map objects are axis aligned, so the walkable space splits exactly
+ *				 into rectangles - convex polygons that can be as big as the open ground
+ *				 around them, where the grid needs a cell every 48 pixels.  The space is
+ *				 also cut where the terrain cost changes, so each polygon is all road or
+ *				 all open ground.  Paths are found with A* from polygon to polygon, then
+ *				 pulled tight through the edges shared along the way (the funnel
+ *				 algorithm), so they only turn at the corners of obstacles and roads.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class NavMesh
+{
+	// constants
+	// how far paths keep from obstacles, on top of the unit's size
+	public static final int CLEARANCE = 4;
+
+	// the farthest a unit can stand from the top left of the map
+	public static final int EDGE = Map.SIZE - Unit.SIZE;
+
+	// the path given when a unit can walk straight to its goal
+	public static final int NO_PATH[] = new int[0];
+
+	// polygons, as the rectangles left <= x <= right, top <= y <= bottom
+	private int numPolygons;
+	private int lefts[];
+	private int tops[];
+	private int rights[];
+	private int bottoms[];
+
+	// terrain cost of each polygon (see TerrainCost)
+	private int terrainCosts[];
+
+	// polygons that can reach each other share a component number
+	private int components[];
+
+	// the edges shared between polygons, those from portalStart[p] up to portalStart[p + 1]
+	// belonging to polygon p.  Each goes from x0,y0 to x1,y1, top to bottom or left to right.
+	private int portalStart[];
+	private int portalTo[];
+	private int portalX0[];
+	private int portalY0[];
+	private int portalX1[];
+	private int portalY1[];
+
+	// the lines the rectangles were cut along, and the polygon covering each piece of
+	// ground between them (-1 where it's blocked)
+	private int xs[];
+	private int ys[];
+	private int owners[];
+
+	// A* bookkeeping, one entry per polygon.  A polygon's entries are only valid when its
+	// searchId matches the current search.
+	private int costs[];
+	private int parents[];
+	private int entryX[];
+	private int entryY[];
+	private int searchIds[];
+	private boolean closed[];
+	private int searchId;
+	private PathHeap heap;
+
+	// NavMesh() - class constructor
+	// Cuts the map along every edge of every grown obstacle and every change in terrain,
+	// then merges the walkable pieces into as few rectangles as it can
+	public NavMesh(ObjectIndex index, TerrainCost terrain)
+	{
+		int numObjects = index.getNumObjects();
+		int minX[] = new int[numObjects];
+		int minY[] = new int[numObjects];
+		int maxX[] = new int[numObjects];
+		int maxY[] = new int[numObjects];
+		int numObstacles = 0;
+
+		for (int i = 0; i < numObjects; i++)
+		{
+			if (!Map.isObstacle(index.getType(i)))
+				continue;
+
+			// the same area the PathGrid blocks - a unit at x collides when x is strictly
+			// between these - plus the clearance
+			minX[numObstacles] = index.getLeft(i) + ObjectCollision.BUFFER - (Unit.SIZE - ObjectCollision.BUFFER) - CLEARANCE;
+			maxX[numObstacles] = index.getRight(i) - ObjectCollision.BUFFER - ObjectCollision.BUFFER + CLEARANCE;
+			minY[numObstacles] = index.getTop(i) + ObjectCollision.BUFFER - (Unit.SIZE - ObjectCollision.BUFFER) - CLEARANCE;
+			maxY[numObstacles] = index.getBottom(i) - ObjectCollision.BUFFER - ObjectCollision.BUFFER + CLEARANCE;
+
+			if (minX[numObstacles] < maxX[numObstacles] && minY[numObstacles] < maxY[numObstacles])
+				numObstacles++;
+		}
+
+		xs = getCuts(minX, maxX, numObstacles, terrain, true);
+		ys = getCuts(minY, maxY, numObstacles, terrain, false);
+
+		int columns = xs.length - 1;
+		int rows = ys.length - 1;
+		boolean blocked[] = new boolean[columns*rows];
+
+		// the terrain under a unit standing in the middle of each piece
+		int pieceCosts[] = new int[columns*rows];
+		for (int row = 0; row < rows; row++)
+			for (int column = 0; column < columns; column++)
+				pieceCosts[row*columns + column] = terrain.getUnitCost((xs[column] + xs[column + 1]) / 2.0, (ys[row] + ys[row + 1]) / 2.0);
+
+		for (int i = 0; i < numObstacles; i++)
+		{
+			int left = findCut(xs, minX[i]);
+			int right = findCut(xs, maxX[i]);
+			int top = findCut(ys, minY[i]);
+			int bottom = findCut(ys, maxY[i]);
+
+			for (int row = top; row < bottom; row++)
+				for (int column = left; column < right; column++)
+					blocked[row*columns + column] = true;
+		}
+
+		buildPolygons(blocked, pieceCosts, columns, rows);
+		buildPortals(columns, rows);
+		findComponents();
+		createSearch();
+	}
+
+	// NavMesh() - class constructor
+	// Shares the polygons of another mesh, with its own search bookkeeping so the two can
+	// be searched on different threads at once
+	public NavMesh(NavMesh mesh)
+	{
+		numPolygons = mesh.numPolygons;
+		lefts = mesh.lefts;
+		tops = mesh.tops;
+		rights = mesh.rights;
+		bottoms = mesh.bottoms;
+		terrainCosts = mesh.terrainCosts;
+		components = mesh.components;
+		portalStart = mesh.portalStart;
+		portalTo = mesh.portalTo;
+		portalX0 = mesh.portalX0;
+		portalY0 = mesh.portalY0;
+		portalX1 = mesh.portalX1;
+		portalY1 = mesh.portalY1;
+		xs = mesh.xs;
+		ys = mesh.ys;
+		owners = mesh.owners;
+		createSearch();
+	}
+
+	// NavMesh() - class constructor
+	// Reads a mesh written by write()
+	public NavMesh(ByteBuffer in) throws IOException
+	{
+		lefts = MapArtifact.readInts(in);
+		tops = MapArtifact.readInts(in);
+		rights = MapArtifact.readInts(in);
+		bottoms = MapArtifact.readInts(in);
+		terrainCosts = MapArtifact.readInts(in);
+		components = MapArtifact.readInts(in);
+		portalStart = MapArtifact.readInts(in);
+		portalTo = MapArtifact.readInts(in);
+		portalX0 = MapArtifact.readInts(in);
+		portalY0 = MapArtifact.readInts(in);
+		portalX1 = MapArtifact.readInts(in);
+		portalY1 = MapArtifact.readInts(in);
+		xs = MapArtifact.readInts(in);
+		ys = MapArtifact.readInts(in);
+		owners = MapArtifact.readInts(in);
+		numPolygons = portalStart.length - 1;
+
+		if (numPolygons < 0 || numPolygons > lefts.length || owners.length != (xs.length - 1)*(ys.length - 1))
+			throw new IOException("navigation mesh does not fit together");
+
+		createSearch();
+	}
+
+	// write()
+	// Writes the polygons, the portals between them and the pieces they cover
+	public void write(DataOutputStream out) throws IOException
+	{
+		MapArtifact.writeInts(out, lefts);
+		MapArtifact.writeInts(out, tops);
+		MapArtifact.writeInts(out, rights);
+		MapArtifact.writeInts(out, bottoms);
+		MapArtifact.writeInts(out, terrainCosts);
+		MapArtifact.writeInts(out, components);
+		MapArtifact.writeInts(out, portalStart);
+		MapArtifact.writeInts(out, portalTo);
+		MapArtifact.writeInts(out, portalX0);
+		MapArtifact.writeInts(out, portalY0);
+		MapArtifact.writeInts(out, portalX1);
+		MapArtifact.writeInts(out, portalY1);
+		MapArtifact.writeInts(out, xs);
+		MapArtifact.writeInts(out, ys);
+		MapArtifact.writeInts(out, owners);
+	}
+
+	// createSearch()
+	// allocates the A* bookkeeping, one entry per polygon
+	private void createSearch()
+	{
+		costs = new int[numPolygons];
+		parents = new int[numPolygons];
+		entryX = new int[numPolygons];
+		entryY = new int[numPolygons];
+		searchIds = new int[numPolygons];
+		closed = new boolean[numPolygons];
+		heap = new PathHeap(Math.max(numPolygons, 1));
+	}
+
+	// getCuts()
+	// Returns the sorted, distinct lines the map is cut along in one direction - the map
+	// edges, the obstacle edges and the lines where the terrain under a unit changes, as
+	// long as they fall on the map
+	private int[] getCuts(int min[], int max[], int count, TerrainCost terrain, boolean vertical)
+	{
+		int cuts[] = new int[count*2 + TerrainCost.CELLS + 2];
+		int size = 0;
+
+		cuts[size++] = 0;
+		cuts[size++] = EDGE;
+
+		for (int i = 0; i < count; i++)
+		{
+			if (min[i] > 0 && min[i] < EDGE)
+				cuts[size++] = min[i];
+			if (max[i] > 0 && max[i] < EDGE)
+				cuts[size++] = max[i];
+		}
+
+		for (int line = 1; line < TerrainCost.CELLS; line++)
+		{
+			int position = line*TerrainCost.CELL_SIZE - Unit.SIZE/2;
+			if (position > 0 && position < EDGE && terrain.isEdge(line, vertical))
+				cuts[size++] = position;
+		}
+
+		Arrays.sort(cuts, 0, size);
+
+		int distinct = 0;
+		for (int i = 0; i < size; i++)
+			if (distinct == 0 || cuts[i] != cuts[distinct - 1])
+				cuts[distinct++] = cuts[i];
+
+		return Arrays.copyOf(cuts, distinct);
+	}
+
+	// findCut()
+	// returns the index of the cut at the position, clamped to the map
+	private int findCut(int cuts[], int position)
+	{
+		if (position <= 0)
+			return 0;
+		if (position >= EDGE)
+			return cuts.length - 1;
+
+		return Arrays.binarySearch(cuts, position);
+	}
+
+	// buildPolygons()
+	// Grows a rectangle from each walkable piece not yet covered, first as far right and
+	// then as far down as it can go over pieces of the same terrain
+	private void buildPolygons(boolean blocked[], int pieceCosts[], int columns, int rows)
+	{
+		owners = new int[columns*rows];
+		Arrays.fill(owners, -1);
+
+		int capacity = 64;
+		lefts = new int[capacity];
+		tops = new int[capacity];
+		rights = new int[capacity];
+		bottoms = new int[capacity];
+		terrainCosts = new int[capacity];
+		numPolygons = 0;
+
+		for (int row = 0; row < rows; row++)
+			for (int column = 0; column < columns; column++)
+			{
+				if (blocked[row*columns + column] || owners[row*columns + column] >= 0)
+					continue;
+
+				int cost = pieceCosts[row*columns + column];
+
+				int end = column + 1;
+				while (end < columns && isOpen(blocked, pieceCosts, cost, row*columns + end, row*columns + end + 1))
+					end++;
+
+				int bottom = row + 1;
+				while (bottom < rows && isOpen(blocked, pieceCosts, cost, bottom*columns + column, bottom*columns + end))
+					bottom++;
+
+				for (int r = row; r < bottom; r++)
+					for (int c = column; c < end; c++)
+						owners[r*columns + c] = numPolygons;
+
+				if (numPolygons == capacity)
+				{
+					capacity *= 2;
+					lefts = Arrays.copyOf(lefts, capacity);
+					tops = Arrays.copyOf(tops, capacity);
+					rights = Arrays.copyOf(rights, capacity);
+					bottoms = Arrays.copyOf(bottoms, capacity);
+					terrainCosts = Arrays.copyOf(terrainCosts, capacity);
+				}
+
+				lefts[numPolygons] = xs[column];
+				tops[numPolygons] = ys[row];
+				rights[numPolygons] = xs[end];
+				bottoms[numPolygons] = ys[bottom];
+				terrainCosts[numPolygons] = cost;
+				numPolygons++;
+			}
+	}
+
+	// isOpen()
+	// returns true if the pieces from first up to end are walkable, not yet covered and
+	// have the given terrain cost
+	private boolean isOpen(boolean blocked[], int pieceCosts[], int cost, int first, int end)
+	{
+		for (int i = first; i < end; i++)
+			if (blocked[i] || owners[i] >= 0 || pieceCosts[i] != cost)
+				return false;
+
+		return true;
+	}
+
+	// buildPortals()
+	// Finds the edges each polygon shares with its neighbours by walking along its right
+	// and bottom sides.  Polygons that only touch at a corner aren't joined.
+	private void buildPortals(int columns, int rows)
+	{
+		// every portal is found once and stored for both polygons
+		int capacity = numPolygons*4;
+		int from[] = new int[capacity];
+		int to[] = new int[capacity];
+		int x0[] = new int[capacity];
+		int y0[] = new int[capacity];
+		int x1[] = new int[capacity];
+		int y1[] = new int[capacity];
+		int count = 0;
+
+		for (int p = 0; p < numPolygons; p++)
+		{
+			int left = findCut(xs, lefts[p]);
+			int top = findCut(ys, tops[p]);
+			int right = findCut(xs, rights[p]);
+			int bottom = findCut(ys, bottoms[p]);
+
+			for (int side = 0; side < 2; side++)
+			{
+				// the pieces just past the side, and the run of them along it
+				boolean vertical = side == 0;
+				int first = vertical ? top : left;
+				int end = vertical ? bottom : right;
+
+				if ((vertical && right == columns) || (!vertical && bottom == rows))
+					continue;
+
+				int start = first;
+				while (start < end)
+				{
+					int neighbour = vertical ? owners[start*columns + right] : owners[bottom*columns + start];
+					int stop = start + 1;
+
+					while (stop < end && (vertical ? owners[stop*columns + right] : owners[bottom*columns + stop]) == neighbour)
+						stop++;
+
+					if (neighbour >= 0)
+					{
+						if (count + 2 > capacity)
+						{
+							capacity *= 2;
+							from = Arrays.copyOf(from, capacity);
+							to = Arrays.copyOf(to, capacity);
+							x0 = Arrays.copyOf(x0, capacity);
+							y0 = Arrays.copyOf(y0, capacity);
+							x1 = Arrays.copyOf(x1, capacity);
+							y1 = Arrays.copyOf(y1, capacity);
+						}
+
+						for (int k = 0; k < 2; k++)
+						{
+							from[count] = k == 0 ? p : neighbour;
+							to[count] = k == 0 ? neighbour : p;
+							x0[count] = vertical ? rights[p] : xs[start];
+							y0[count] = vertical ? ys[start] : bottoms[p];
+							x1[count] = vertical ? rights[p] : xs[stop];
+							y1[count] = vertical ? ys[stop] : bottoms[p];
+							count++;
+						}
+					}
+
+					start = stop;
+				}
+			}
+		}
+
+		// group the portals by polygon
+		portalStart = new int[numPolygons + 1];
+		for (int i = 0; i < count; i++)
+			portalStart[from[i] + 1]++;
+		for (int p = 0; p < numPolygons; p++)
+			portalStart[p + 1] += portalStart[p];
+
+		int next[] = Arrays.copyOf(portalStart, numPolygons);
+		portalTo = new int[count];
+		portalX0 = new int[count];
+		portalY0 = new int[count];
+		portalX1 = new int[count];
+		portalY1 = new int[count];
+
+		for (int i = 0; i < count; i++)
+		{
+			int j = next[from[i]]++;
+			portalTo[j] = to[i];
+			portalX0[j] = x0[i];
+			portalY0[j] = y0[i];
+			portalX1[j] = x1[i];
+			portalY1[j] = y1[i];
+		}
+	}
+
+	// findComponents()
+	// Flood fills the polygons to number the areas that can reach each other
+	private void findComponents()
+	{
+		components = new int[numPolygons];
+		int stack[] = new int[numPolygons];
+		int numComponents = 0;
+
+		Arrays.fill(components, -1);
+
+		for (int p = 0; p < numPolygons; p++)
+		{
+			if (components[p] >= 0)
+				continue;
+
+			int size = 0;
+			stack[size++] = p;
+			components[p] = numComponents;
+
+			while (size > 0)
+			{
+				int polygon = stack[--size];
+
+				for (int i = portalStart[polygon]; i < portalStart[polygon + 1]; i++)
+					if (components[portalTo[i]] < 0)
+					{
+						components[portalTo[i]] = numComponents;
+						stack[size++] = portalTo[i];
+					}
+			}
+
+			numComponents++;
+		}
+	}
+
+	// findPath()
+	// Returns the corners a unit at startX,startY should walk to, in order, to get to
+	// goalX,goalY, as x,y pairs.  The last corner is the goal, or the nearest point the
+	// unit can reach if the goal is blocked.  A unit standing somewhere blocked is first
+	// sent to the nearest walkable point.  An empty path means the unit can walk straight
+	// to the goal (or can't get any closer).
+	public int[] findPath(int startX, int startY, int goalX, int goalY)
+	{
+		if (numPolygons == 0)
+			return NO_PATH;
+
+		int start = findPolygon(startX, startY);
+		boolean moved = start < 0;
+		if (moved)
+		{
+			start = findNearest(startX, startY, -1);
+			startX = clamp(startX, lefts[start], rights[start]);
+			startY = clamp(startY, tops[start], bottoms[start]);
+		}
+
+		int goal = findPolygon(goalX, goalY);
+		if (goal < 0 || components[goal] != components[start])
+		{
+			goal = findNearest(goalX, goalY, components[start]);
+			goalX = clamp(goalX, lefts[goal], rights[goal]);
+			goalY = clamp(goalY, tops[goal], bottoms[goal]);
+		}
+
+		if (start == goal)
+		{
+			if (moved)
+				return new int[] { startX, startY, goalX, goalY };
+
+			return NO_PATH;
+		}
+
+		search(start, goal, startX, startY, goalX, goalY);
+
+		// the polygons passed through on the way
+		int length = 1;
+		for (int p = goal; p != start; p = parents[p])
+			length++;
+
+		int corridor[] = new int[length];
+		for (int p = goal, i = length - 1; i >= 0; p = parents[p], i--)
+			corridor[i] = p;
+
+		// an end on the edge of the next polygon along would sit on the portal, which
+		// throws the funnel off, so start (and finish) in that polygon instead
+		int first = 0;
+		int last = length - 1;
+		while (first < last && contains(corridor[first + 1], startX, startY))
+			first++;
+		while (last > first && contains(corridor[last - 1], goalX, goalY))
+			last--;
+		corridor = Arrays.copyOfRange(corridor, first, last + 1);
+
+		int corners[] = pullString(corridor, startX, startY, goalX, goalY);
+
+		// a unit that was off the mesh walks back onto it first
+		if (moved)
+		{
+			int withStart[] = new int[corners.length + 2];
+			withStart[0] = startX;
+			withStart[1] = startY;
+			System.arraycopy(corners, 0, withStart, 2, corners.length);
+			corners = withStart;
+		}
+
+		return corners;
+	}
+
+	// search()
+	// Runs A* over the polygons from start to goal, which are in the same component.  A
+	// polygon is entered where the line from where the unit came from to the goal crosses
+	// the portal, or the nearest end if it misses, which is a good guess at where the
+	// pulled path will go.  Distances are weighted by the terrain cost of the polygon
+	// they're walked across.
+	private void search(int start, int goal, int startX, int startY, int goalX, int goalY)
+	{
+		searchId++;
+		heap.clear();
+
+		searchIds[start] = searchId;
+		closed[start] = false;
+		costs[start] = 0;
+		parents[start] = -1;
+		entryX[start] = startX;
+		entryY[start] = startY;
+		heap.add(start, estimate(startX, startY, goalX, goalY));
+
+		while (!heap.isEmpty())
+		{
+			int polygon = heap.pop();
+			if (closed[polygon])
+				continue;
+
+			closed[polygon] = true;
+			if (polygon == goal)
+				return;
+
+			int x = entryX[polygon];
+			int y = entryY[polygon];
+
+			for (int i = portalStart[polygon]; i < portalStart[polygon + 1]; i++)
+			{
+				int next = portalTo[i];
+				if (searchIds[next] == searchId && closed[next])
+					continue;
+
+				int nextX = aim(x, y, goalX, goalY, portalX0[i], portalX1[i], portalY0[i], portalY1[i], true);
+				int nextY = aim(x, y, goalX, goalY, portalX0[i], portalX1[i], portalY0[i], portalY1[i], false);
+
+				// the last step is measured to the goal itself
+				int cost = costs[polygon] + distance(x, y, nextX, nextY)*terrainCosts[polygon] / TerrainCost.PLAIN;
+				if (next == goal)
+					cost += distance(nextX, nextY, goalX, goalY)*terrainCosts[goal] / TerrainCost.PLAIN;
+
+				if (searchIds[next] == searchId && cost >= costs[next])
+					continue;
+
+				searchIds[next] = searchId;
+				closed[next] = false;
+				costs[next] = cost;
+				parents[next] = polygon;
+				entryX[next] = nextX;
+				entryY[next] = nextY;
+				heap.add(next, next == goal ? cost : cost + estimate(nextX, nextY, goalX, goalY));
+			}
+		}
+	}
+
+	// aim()
+	// Returns the x (or y if getX is false) of the point on the portal from x0,y0 to x1,y1
+	// nearest where the line from x,y to goalX,goalY crosses it
+	private static int aim(int x, int y, int goalX, int goalY, int x0, int x1, int y0, int y1, boolean getX)
+	{
+		if (x0 == x1)
+		{
+			if (getX)
+				return x0;
+			if (goalX == x || (x0 - x) / (double)(goalX - x) < 0)
+				return clamp(y, y0, y1);
+
+			return clamp((int)Math.round(y + (goalY - y)*(double)(x0 - x)/(goalX - x)), y0, y1);
+		}
+
+		if (!getX)
+			return y0;
+		if (goalY == y || (y0 - y) / (double)(goalY - y) < 0)
+			return clamp(x, x0, x1);
+
+		return clamp((int)Math.round(x + (goalX - x)*(double)(y0 - y)/(goalY - y)), x0, x1);
+	}
+
+	// pullString()
+	// Pulls the path through the corridor of polygons tight (the simple stupid funnel
+	// algorithm).  A funnel is kept from the last corner out to the left and right ends
+	// of the portals passed so far, and narrowed portal by portal.  When a side would
+	// cross over the other, the other side's end is a corner the path has to turn at,
+	// and the funnel starts again from there.
+	private int[] pullString(int corridor[], int startX, int startY, int goalX, int goalY)
+	{
+		// the left and right ends of each portal, as seen walking through it, with the
+		// goal at the end
+		int count = corridor.length;
+		int leftX[] = new int[count];
+		int leftY[] = new int[count];
+		int rightX[] = new int[count];
+		int rightY[] = new int[count];
+
+		for (int i = 0; i + 1 < count; i++)
+		{
+			int portal = findPortal(corridor[i], corridor[i + 1]);
+			boolean vertical = portalX0[portal] == portalX1[portal];
+
+			// y grows down the screen, so walking east the left hand is the top end
+			boolean forward = vertical ? rights[corridor[i]] == portalX0[portal] : bottoms[corridor[i]] == portalY0[portal];
+			boolean firstOnLeft = vertical ? forward : !forward;
+
+			leftX[i] = firstOnLeft ? portalX0[portal] : portalX1[portal];
+			leftY[i] = firstOnLeft ? portalY0[portal] : portalY1[portal];
+			rightX[i] = firstOnLeft ? portalX1[portal] : portalX0[portal];
+			rightY[i] = firstOnLeft ? portalY1[portal] : portalY0[portal];
+		}
+
+		leftX[count - 1] = rightX[count - 1] = goalX;
+		leftY[count - 1] = rightY[count - 1] = goalY;
+
+		int corners[] = new int[count*2 + 2];
+		int numCorners = 0;
+
+		int apexX = startX, apexY = startY;
+		int funnelLeftX = startX, funnelLeftY = startY;
+		int funnelRightX = startX, funnelRightY = startY;
+		int apexIndex = 0, leftIndex = 0, rightIndex = 0;
+
+		for (int i = 0; i < count; i++)
+		{
+			// narrow the right side
+			if (cross(apexX, apexY, funnelRightX, funnelRightY, rightX[i], rightY[i]) <= 0)
+			{
+				if ((apexX == funnelRightX && apexY == funnelRightY) ||
+					cross(apexX, apexY, funnelLeftX, funnelLeftY, rightX[i], rightY[i]) > 0)
+				{
+					funnelRightX = rightX[i];
+					funnelRightY = rightY[i];
+					rightIndex = i;
+				}
+				else
+				{
+					// the right side crossed the left, so the path turns at the left end
+					corners[numCorners++] = apexX = funnelLeftX;
+					corners[numCorners++] = apexY = funnelLeftY;
+					apexIndex = leftIndex;
+
+					funnelRightX = apexX;
+					funnelRightY = apexY;
+					rightIndex = leftIndex = apexIndex;
+					i = apexIndex;
+					continue;
+				}
+			}
+
+			// narrow the left side
+			if (cross(apexX, apexY, funnelLeftX, funnelLeftY, leftX[i], leftY[i]) >= 0)
+			{
+				if ((apexX == funnelLeftX && apexY == funnelLeftY) ||
+					cross(apexX, apexY, funnelRightX, funnelRightY, leftX[i], leftY[i]) < 0)
+				{
+					funnelLeftX = leftX[i];
+					funnelLeftY = leftY[i];
+					leftIndex = i;
+				}
+				else
+				{
+					// the left side crossed the right, so the path turns at the right end
+					corners[numCorners++] = apexX = funnelRightX;
+					corners[numCorners++] = apexY = funnelRightY;
+					apexIndex = rightIndex;
+
+					funnelLeftX = apexX;
+					funnelLeftY = apexY;
+					leftIndex = rightIndex = apexIndex;
+					i = apexIndex;
+					continue;
+				}
+			}
+		}
+
+		// the goal may already be the last corner
+		if (numCorners == 0 || corners[numCorners - 2] != goalX || corners[numCorners - 1] != goalY)
+		{
+			corners[numCorners++] = goalX;
+			corners[numCorners++] = goalY;
+		}
+
+		return Arrays.copyOf(corners, numCorners);
+	}
+
+	// findPortal()
+	// returns the portal from one polygon into the other
+	private int findPortal(int from, int to)
+	{
+		for (int i = portalStart[from]; i < portalStart[from + 1]; i++)
+			if (portalTo[i] == to)
+				return i;
+
+		return -1;
+	}
+
+	// cross()
+	// Returns the cross product of a to b and a to c, which is negative when c is to the
+	// left of the line from a to b (y grows down the screen), positive to the right and
+	// 0 on it
+	private static long cross(int ax, int ay, int bx, int by, int cx, int cy)
+	{
+		return (long)(bx - ax)*(cy - ay) - (long)(by - ay)*(cx - ax);
+	}
+
+	// findPolygon()
+	// Returns the polygon the position is in, or -1 if it's blocked.  A position on the
+	// line between two polygons may be given either.
+	public int findPolygon(int x, int y)
+	{
+		if (x < 0 || x > EDGE || y < 0 || y > EDGE)
+			return -1;
+
+		int columns = xs.length - 1;
+		int column = findPiece(xs, x);
+		int row = findPiece(ys, y);
+
+		// a position on a cut line touches the pieces on both sides of it
+		int firstColumn = column > 0 && x == xs[column] ? column - 1 : column;
+		int firstRow = row > 0 && y == ys[row] ? row - 1 : row;
+
+		for (int r = firstRow; r <= row; r++)
+			for (int c = firstColumn; c <= column; c++)
+				if (owners[r*columns + c] >= 0)
+					return owners[r*columns + c];
+
+		return -1;
+	}
+
+	// contains()
+	// returns true if the position is in the polygon or on its edge
+	private boolean contains(int polygon, int x, int y)
+	{
+		return x >= lefts[polygon] && x <= rights[polygon] && y >= tops[polygon] && y <= bottoms[polygon];
+	}
+
+	// findPiece()
+	// returns the index of the piece between cuts holding the position
+	private int findPiece(int cuts[], int position)
+	{
+		int i = Arrays.binarySearch(cuts, position);
+		if (i < 0)
+			i = -i - 2;
+
+		return Math.min(i, cuts.length - 2);
+	}
+
+	// findNearest()
+	// returns the polygon closest to the position that is in the component (or any
+	// component if component is -1)
+	private int findNearest(int x, int y, int component)
+	{
+		int best = -1;
+		long bestDistance = Long.MAX_VALUE;
+
+		for (int p = 0; p < numPolygons; p++)
+		{
+			if (component >= 0 && components[p] != component)
+				continue;
+
+			long dx = x - clamp(x, lefts[p], rights[p]);
+			long dy = y - clamp(y, tops[p], bottoms[p]);
+			if (dx*dx + dy*dy < bestDistance)
+			{
+				best = p;
+				bestDistance = dx*dx + dy*dy;
+			}
+		}
+
+		return best;
+	}
+
+	// clamp()
+	// keeps a value between min and max
+	private static int clamp(int value, int min, int max)
+	{
+		if (value < min)
+			return min;
+		if (value > max)
+			return max;
+
+		return value;
+	}
+
+	// estimate()
+	// returns the least the trip from x,y to goalX,goalY could cost, over the cheapest
+	// terrain all the way
+	private static int estimate(int x, int y, int goalX, int goalY)
+	{
+		return distance(x, y, goalX, goalY)*TerrainCost.CHEAPEST / TerrainCost.PLAIN;
+	}
+
+	// distance()
+	// returns the straight line distance between two points, rounded
+	private static int distance(int x0, int y0, int x1, int y1)
+	{
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+
+		return (int)Math.round(Math.sqrt(dx*dx + dy*dy));
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	public int getNumPolygons()
+	{
+		return numPolygons;
+	}
+
+	public int getNumPortals()
+	{
+		return portalTo.length;
+	}
+
+	// returns the bounds of a polygon
+	public int getLeft(int polygon)
+	{
+		return lefts[polygon];
+	}
+
+	public int getTop(int polygon)
+	{
+		return tops[polygon];
+	}
+
+	public int getRight(int polygon)
+	{
+		return rights[polygon];
+	}
+
+	public int getBottom(int polygon)
+	{
+		return bottoms[polygon];
+	}
+
+	public int getComponent(int polygon)
+	{
+		return components[polygon];
+	}
+
+	// returns the terrain cost of a polygon
+	public int getCost(int polygon)
+	{
+		return terrainCosts[polygon];
+	}
+}
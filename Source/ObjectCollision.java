@@ -2,67 +2,133 @@
  * Name of code: ObjectCollision.java
  * Description: Handles collision between units and objects.
  * Programmer Name: Joel Angelone
- * Date of last modification: 4/28/06
+ * Date of last modification: 10/18/26
  */
 
 import com.golden.gamedev.object.*;
-import com.golden.gamedev.object.collision.*;
 import java.awt.Point;
 
-public class ObjectCollision extends CollisionGroup
+public class ObjectCollision extends CollisionManager
 {
 	// BUFFER is the difference between the actual size of the sprite and
 	// the rectangle used for collision
 	public static final int BUFFER = 24;
 	GamePlay gamePlay;
 	Point	 dest;
+	int		 found[];
 	
 	// ObjectCollision() - class constructor
 	public ObjectCollision(GamePlay parent)
 	{
 		gamePlay = parent;
+		found = new int[0];
 	}
 	
-	// getCollisionShape1()
-	// Returns the sprite collision bounding box for sprite 1- this is the sprite rectangle minus
-	// the BUFFER on each side
-	public CollisionShape getCollisionShape1(Sprite s1)
+	// checkCollision()
+	// Looks up the objects near each living unit in the map's object index and checks the
+	// unit against those only, in map order.
+	public void checkCollision()
 	{
-		rect1.setBounds(s1.getX() + BUFFER, s1.getY() + BUFFER, s1.getWidth() - 2*BUFFER, s1.getHeight() - 2*BUFFER);
-		return rect1;
+		Map map = gamePlay.getMap();
+		ObjectIndex index = map.getObjectIndex();
+		
+		if (found.length < index.getNumObjects())
+			found = new int[index.getNumObjects()];
+		
+		for (int i = 0; i < gamePlay.getNumFriendlyUnits(); i++)
+			checkUnit(gamePlay.friendlyUnits[i], map, index);
+		for (int i = 0; i < gamePlay.getNumEnemyUnits(); i++)
+			checkUnit(gamePlay.enemyUnits[i], map, index);
 	}
-
-	// getCollisionShape2()
-	// Returns the sprite collision bounding box for sprite 2- this is the sprite rectangle minus
-	// the BUFFER on each side
-	public CollisionShape getCollisionShape2(Sprite s2)
+	
+	// checkUnit()
+	// Checks a single unit against the obstacles around it
+	private void checkUnit(Unit unit, Map map, ObjectIndex index)
+	{
+		// don't worry about dead units
+		if (!unit.isAlive())
+			return;
+		
+		// both collision boxes are shrunk by BUFFER, so any object that can touch the unit
+		// overlaps the unit's whole sprite rectangle
+		Sprite s1 = unit.sprite;
+		int count = index.query(s1.getX(), s1.getY(), s1.getWidth(), s1.getHeight(), found);
+		
+		for (int i = 0; i < count; i++)
+		{
+			if (!Map.isObstacle(index.getType(found[i])))
+				continue;
+			
+			Sprite s2 = map.getObject(found[i]);
+			
+			// an earlier collision may have already moved the unit back.  Boxes that
+			// overlap only collide where the object's mask is solid.
+			if (overlaps(s1, s2) &&
+				touches(map, found[i], s1.getX() + BUFFER, s1.getY() + BUFFER,
+						s1.getX() + s1.getWidth() - BUFFER, s1.getY() + s1.getHeight() - BUFFER))
+				collided(unit, s2);
+		}
+	}
+	
+	// overlaps()
+	// Returns true if the collision boxes of the two sprites overlap.  The collision box is
+	// the sprite rectangle minus the BUFFER on each side.
+	private boolean overlaps(Sprite s1, Sprite s2)
 	{
-		rect2.setBounds(s2.getX() + BUFFER, s2.getY() + BUFFER, s2.getWidth() - 2*BUFFER, s2.getHeight() - 2*BUFFER);
-		return rect2;
+		return s1.getX() + s1.getWidth() - BUFFER > s2.getX() + BUFFER &&
+			   s2.getX() + s2.getWidth() - BUFFER > s1.getX() + BUFFER &&
+			   s1.getY() + s1.getHeight() - BUFFER > s2.getY() + BUFFER &&
+			   s2.getY() + s2.getHeight() - BUFFER > s1.getY() + BUFFER;
+	}
+	
+	// touches()
+	// Returns true if the map area from left,top to right,bottom covers any solid pixel of
+	// the object inside its collision box
+	public static boolean touches(Map map, int object, double left, double top, double right, double bottom)
+	{
+		Sprite s2 = map.getObject(object);
+		CollisionMask mask = map.getMask(object);
+		if (mask == null)
+			return false;
+		
+		double x = s2.getX();
+		double y = s2.getY();
+		
+		// pixels in the object's own coordinates, trimmed to its collision box
+		int maskLeft = Math.max(BUFFER, (int)Math.floor(left - x));
+		int maskTop = Math.max(BUFFER, (int)Math.floor(top - y));
+		int maskRight = Math.min(s2.getWidth() - BUFFER, (int)Math.ceil(right - x));
+		int maskBottom = Math.min(s2.getHeight() - BUFFER, (int)Math.ceil(bottom - y));
+		
+		return mask.overlaps(maskLeft, maskTop, maskRight, maskBottom);
+	}
+	
+	// getCollisionSide()
+	// Works out which way the unit was heading when it ran into the object from where it
+	// was before it moved: 1 - west, 2 - east, 4 - north, 8 - south, 0 - already overlapping.
+	private int getCollisionSide(Sprite s1, Sprite s2)
+	{
+		double oldX = s1.getOldX();
+		double oldY = s1.getOldY();
+		
+		if (oldX + BUFFER >= s2.getX() + s2.getWidth() - BUFFER)
+			return 1;
+		if (oldX + s1.getWidth() - BUFFER <= s2.getX() + BUFFER)
+			return 2;
+		if (oldY + BUFFER >= s2.getY() + s2.getHeight() - BUFFER)
+			return 4;
+		if (oldY + s1.getHeight() - BUFFER <= s2.getY() + BUFFER)
+			return 8;
+		
+		return 0;
 	}
 	
 	// collided()
 	// This method is called whenever a collision is detected.  The collided unit
 	// is ordered to path around the object blocking its path.
-	public void collided(Sprite s1, Sprite s2)
+	public void collided(Unit unit, Sprite s2)
 	{	
-		// identify the unit based on the sprite ID
-		int id = s1.getID();
-	
-		Unit unit;
-		
-		// Enemy Unit
-		if (id < 0)
-		{
-			id = Math.abs(id) - 1;
-			unit = gamePlay.enemyUnits[id];
-		}
-		
-		// Friendly Unit
-		else
-		{
-			unit = gamePlay.friendlyUnits[id];	
-		}
+		Sprite s1 = unit.sprite;
 		
 		// don't worry about dead units
 		if (!unit.isAlive())
@@ -72,8 +138,11 @@ public class ObjectCollision extends CollisionGroup
 		if (unit.getState() == Unit.STOP || unit.getState() == Unit.STAND_GROUND)
 			return;
 		
-		revertPosition1();
-		int side = getCollisionSide();
+		int side = getCollisionSide(s1, s2);
+		
+		// move back to where the unit was before it ran into the object
+		s1.forceX(s1.getOldX());
+		s1.forceY(s1.getOldY());
 		dest = unit.getDestination();
 		
 		// no need to path if the destination is unreachable - inside the object blocking the path
@@ -0,0 +1,216 @@
+/*
+ * Name of code: ObjectIndex.java
+ * Description:  Static spatial index of the objects on a map.  Map objects never move
+ *				 once the map is loaded, so the index is built once into a packed grid and
+ *				 never changes.  Rectangle and range queries return object indexes (as used
+ *				 by Map.getObject()) in map order.  Queries don't modify the index, so it
+ *				 is safe to share.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class ObjectIndex
+{
+	// constants
+	public static final int CELL_SIZE = 256;
+	public static final int CELLS = Map.SIZE / CELL_SIZE;
+
+	private int numObjects;
+	private int left[];
+	private int top[];
+	private int right[];
+	private int bottom[];
+	private int types[];
+
+	// cell contents, packed: the objects in cell c are entries[cellStart[c]] up to
+	// entries[cellStart[c+1]], in map order
+	private int cellStart[];
+	private int entries[];
+
+	// ObjectIndex() - class constructor
+	// Builds the index from object bounds (x, y, width, height) and types
+	public ObjectIndex(int x[], int y[], int width[], int height[], int typeList[], int count)
+	{
+		numObjects = count;
+		left = new int[count];
+		top = new int[count];
+		right = new int[count];
+		bottom = new int[count];
+		types = new int[count];
+
+		for (int i = 0; i < count; i++)
+		{
+			left[i] = x[i];
+			top[i] = y[i];
+			right[i] = x[i] + width[i];
+			bottom[i] = y[i] + height[i];
+			types[i] = typeList[i];
+		}
+
+		// count the objects touching each cell, then pack them
+		cellStart = new int[CELLS*CELLS + 1];
+		int total = 0;
+
+		for (int i = 0; i < count; i++)
+			for (int cy = getCell(top[i]); cy <= getCell(bottom[i]); cy++)
+				for (int cx = getCell(left[i]); cx <= getCell(right[i]); cx++)
+				{
+					cellStart[cy*CELLS + cx + 1]++;
+					total++;
+				}
+
+		for (int c = 0; c < CELLS*CELLS; c++)
+			cellStart[c + 1] += cellStart[c];
+
+		entries = new int[total];
+		int fill[] = new int[CELLS*CELLS];
+		System.arraycopy(cellStart, 0, fill, 0, CELLS*CELLS);
+
+		for (int i = 0; i < count; i++)
+			for (int cy = getCell(top[i]); cy <= getCell(bottom[i]); cy++)
+				for (int cx = getCell(left[i]); cx <= getCell(right[i]); cx++)
+					entries[fill[cy*CELLS + cx]++] = i;
+	}
+
+	// ObjectIndex() - class constructor
+	// Reads an index written by write()
+	public ObjectIndex(ByteBuffer in) throws IOException
+	{
+		left = MapArtifact.readInts(in);
+		top = MapArtifact.readInts(in);
+		right = MapArtifact.readInts(in);
+		bottom = MapArtifact.readInts(in);
+		types = MapArtifact.readInts(in);
+		cellStart = MapArtifact.readInts(in);
+		entries = MapArtifact.readInts(in);
+		numObjects = left.length;
+
+		if (cellStart.length != CELLS*CELLS + 1)
+			throw new IOException("object index has the wrong number of cells");
+	}
+
+	// write()
+	// Writes the object table (bounds and types) and the packed cells
+	public void write(DataOutputStream out) throws IOException
+	{
+		MapArtifact.writeInts(out, left);
+		MapArtifact.writeInts(out, top);
+		MapArtifact.writeInts(out, right);
+		MapArtifact.writeInts(out, bottom);
+		MapArtifact.writeInts(out, types);
+		MapArtifact.writeInts(out, cellStart);
+		MapArtifact.writeInts(out, entries);
+	}
+
+	// query()
+	// Finds every object whose bounds overlap the rectangle.  The object indexes are
+	// written to results in map order and the number found is returned.  results must
+	// be large enough to hold every object on the map (getNumObjects()).
+	public int query(double x, double y, double width, double height, int results[])
+	{
+		double queryRight = x + width;
+		double queryBottom = y + height;
+		int count = 0;
+
+		for (int cy = getCell(y); cy <= getCell(queryBottom); cy++)
+		{
+			for (int cx = getCell(x); cx <= getCell(queryRight); cx++)
+			{
+				int cell = cy*CELLS + cx;
+
+				for (int e = cellStart[cell]; e < cellStart[cell + 1]; e++)
+				{
+					int i = entries[e];
+
+					if (left[i] >= queryRight || x >= right[i] || top[i] >= queryBottom || y >= bottom[i])
+						continue;
+
+					// an object can span several cells - only report it from the cell
+					// holding the top left corner of its overlap with the rectangle
+					if (getCell(Math.max(left[i], x)) != cx || getCell(Math.max(top[i], y)) != cy)
+						continue;
+
+					results[count++] = i;
+				}
+			}
+		}
+
+		java.util.Arrays.sort(results, 0, count);
+		return count;
+	}
+
+	// queryRange()
+	// Finds every object whose bounds come within radius pixels of the point x,y.  Works
+	// like query().
+	public int queryRange(double x, double y, double radius, int results[])
+	{
+		int found = query(x - radius, y - radius, radius*2, radius*2, results);
+		int count = 0;
+
+		for (int r = 0; r < found; r++)
+		{
+			int i = results[r];
+
+			// distance from the point to the closest point of the object
+			double dx = Math.max(Math.max(left[i] - x, x - right[i]), 0);
+			double dy = Math.max(Math.max(top[i] - y, y - bottom[i]), 0);
+
+			if (dx*dx + dy*dy < radius*radius)
+				results[count++] = i;
+		}
+
+		return count;
+	}
+
+	// getCell()
+	// returns the cell coordinate for a position, kept on the map
+	private int getCell(double position)
+	{
+		int c = (int)(position / CELL_SIZE);
+
+		if (c < 0)
+			return 0;
+		if (c >= CELLS)
+			return CELLS - 1;
+
+		return c;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	public int getNumObjects()
+	{
+		return numObjects;
+	}
+
+	public int getLeft(int index)
+	{
+		return left[index];
+	}
+
+	public int getTop(int index)
+	{
+		return top[index];
+	}
+
+	public int getRight(int index)
+	{
+		return right[index];
+	}
+
+	public int getBottom(int index)
+	{
+		return bottom[index];
+	}
+
+	public int getType(int index)
+	{
+		return types[index];
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Name of code: PairList.java
+ * Description:  A growable list of index pairs, filled in by a Broadphase.  The arrays
+ *				 are kept between uses so finding pairs each tick doesn't allocate.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class PairList
+{
+	private int first[];
+	private int second[];
+	private long keys[];
+	private int size;
+
+	// PairList() - class constructor
+	public PairList()
+	{
+		first = new int[64];
+		second = new int[64];
+		keys = new long[64];
+		size = 0;
+	}
+
+	// add()
+	// Adds the pair (i, j) to the list, growing the arrays if they are full
+	public void add(int i, int j)
+	{
+		if (size == first.length)
+		{
+			int grownFirst[] = new int[size*2];
+			int grownSecond[] = new int[size*2];
+			System.arraycopy(first, 0, grownFirst, 0, size);
+			System.arraycopy(second, 0, grownSecond, 0, size);
+			first = grownFirst;
+			second = grownSecond;
+		}
+
+		first[size] = i;
+		second[size] = j;
+		size++;
+	}
+
+	// sort()
+	// Puts the pairs in order by first index, then second index, so the order the pairs
+	// are handled in doesn't depend on which broadphase found them
+	public void sort()
+	{
+		if (keys.length < size)
+			keys = new long[first.length];
+
+		for (int i = 0; i < size; i++)
+			keys[i] = ((long)first[i] << 32) | second[i];
+
+		java.util.Arrays.sort(keys, 0, size);
+
+		for (int i = 0; i < size; i++)
+		{
+			first[i] = (int)(keys[i] >> 32);
+			second[i] = (int)keys[i];
+		}
+	}
+
+	// clear()
+	// Empties the list without releasing its memory
+	public void clear()
+	{
+		size = 0;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	public int size()
+	{
+		return size;
+	}
+
+	public int getFirst(int index)
+	{
+		return first[index];
+	}
+
+	public int getSecond(int index)
+	{
+		return second[index];
+	}
+}
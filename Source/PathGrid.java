@@ -0,0 +1,355 @@
+/*
+ * Name of code: PathGrid.java
+ * Description:  Walkability grid used for pathfinding.  Cells are in unit position
+ *				 space - a cell covers the positions (sprite top left corners) a unit can
+ *				 stand at - and a cell is only walkable if a unit standing anywhere in it
+ *				 would be clear of every obstacle.  That builds the unit's size into the
+ *				 grid, so paths through walkable cells never clip an object.  Each cell
+ *				 also has the terrain cost under a unit standing in its middle, which
+ *				 weights the steps the searches take.  Map objects never move, so the
+ *				 grid is built once per map.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class PathGrid
+{
+	// constants
+	public static final int CELL_SIZE = 48;
+	public static final int CELLS = Map.SIZE / CELL_SIZE;
+
+	private boolean walkable[];
+
+	// terrain cost of each cell (see TerrainCost)
+	private byte costs[];
+
+	// cells that can reach each other share a component number, blocked cells are -1
+	private int components[];
+
+	// PathGrid() - class constructor
+	// Marks every cell a unit could run into an obstacle from as blocked
+	public PathGrid(ObjectIndex index, TerrainCost terrain)
+	{
+		walkable = new boolean[CELLS*CELLS];
+		costs = new byte[CELLS*CELLS];
+
+		for (int c = 0; c < CELLS*CELLS; c++)
+		{
+			walkable[c] = true;
+			costs[c] = (byte)terrain.getUnitCost(getX(c), getY(c));
+		}
+
+		// units can't stand past the edge of the map
+		for (int c = 0; c < CELLS; c++)
+			for (int far = (Map.SIZE - Unit.SIZE) / CELL_SIZE + 1; far < CELLS; far++)
+			{
+				walkable[far*CELLS + c] = false;
+				walkable[c*CELLS + far] = false;
+			}
+
+		for (int i = 0; i < index.getNumObjects(); i++)
+		{
+			if (!Map.isObstacle(index.getType(i)))
+				continue;
+
+			// a unit at x collides when x is strictly between these
+			int minX = index.getLeft(i) + ObjectCollision.BUFFER - (Unit.SIZE - ObjectCollision.BUFFER);
+			int maxX = index.getRight(i) - ObjectCollision.BUFFER - ObjectCollision.BUFFER;
+			int minY = index.getTop(i) + ObjectCollision.BUFFER - (Unit.SIZE - ObjectCollision.BUFFER);
+			int maxY = index.getBottom(i) - ObjectCollision.BUFFER - ObjectCollision.BUFFER;
+
+			if (minX >= maxX || minY >= maxY)
+				continue;
+
+			for (int cx = Math.max(floorCell(minX), 0); cx < CELLS && cx*CELL_SIZE < maxX; cx++)
+				for (int cy = Math.max(floorCell(minY), 0); cy < CELLS && cy*CELL_SIZE < maxY; cy++)
+					if ((cx + 1)*CELL_SIZE > minX && (cy + 1)*CELL_SIZE > minY)
+						walkable[cy*CELLS + cx] = false;
+		}
+
+		findComponents();
+	}
+
+	// PathGrid() - class constructor
+	// Reads a grid written by write()
+	public PathGrid(ByteBuffer in) throws IOException
+	{
+		walkable = MapArtifact.readBooleans(in);
+		costs = MapArtifact.readBytes(in);
+		components = MapArtifact.readInts(in);
+
+		if (walkable.length != CELLS*CELLS || costs.length != CELLS*CELLS || components.length != CELLS*CELLS)
+			throw new IOException("path grid has the wrong number of cells");
+	}
+
+	// write()
+	// Writes which cells are walkable, their costs and their components
+	public void write(DataOutputStream out) throws IOException
+	{
+		MapArtifact.writeBooleans(out, walkable);
+		MapArtifact.writeBytes(out, costs);
+		MapArtifact.writeInts(out, components);
+	}
+
+	// findComponents()
+	// Flood fills the walkable cells to number the areas that can reach each other
+	private void findComponents()
+	{
+		components = new int[CELLS*CELLS];
+		int stack[] = new int[CELLS*CELLS];
+		int numComponents = 0;
+
+		for (int c = 0; c < CELLS*CELLS; c++)
+			components[c] = -1;
+
+		for (int c = 0; c < CELLS*CELLS; c++)
+		{
+			if (!walkable[c] || components[c] >= 0)
+				continue;
+
+			int size = 0;
+			stack[size++] = c;
+			components[c] = numComponents;
+
+			while (size > 0)
+			{
+				int cell = stack[--size];
+				int cx = cell % CELLS;
+				int cy = cell / CELLS;
+
+				for (int dy = -1; dy <= 1; dy++)
+					for (int dx = -1; dx <= 1; dx++)
+					{
+						if ((dx != 0 || dy != 0) && canStep(cx, cy, dx, dy))
+						{
+							int next = (cy + dy)*CELLS + cx + dx;
+							if (components[next] < 0)
+							{
+								components[next] = numComponents;
+								stack[size++] = next;
+							}
+						}
+					}
+			}
+
+			numComponents++;
+		}
+	}
+
+	// canStep()
+	// Returns true if a unit can move from cell cx,cy to the neighbouring cell dx,dy away.
+	// Diagonal steps can't cut the corner of a blocked cell.
+	public boolean canStep(int cx, int cy, int dx, int dy)
+	{
+		if (!isWalkable(cx + dx, cy + dy))
+			return false;
+
+		if (dx != 0 && dy != 0)
+			return isWalkable(cx + dx, cy) && isWalkable(cx, cy + dy);
+
+		return true;
+	}
+
+	// getStepCost()
+	// Returns the cost of a step from cell cx,cy to the neighbouring cell dx,dy away - the
+	// straight or diagonal step cost, weighted by the terrain in the two cells
+	public int getStepCost(int cx, int cy, int dx, int dy)
+	{
+		int step = dx != 0 && dy != 0 ? Pathfinder.DIAGONAL : Pathfinder.STRAIGHT;
+		int terrain = costs[cy*CELLS + cx] + costs[(cy + dy)*CELLS + cx + dx];
+
+		return step*terrain / (TerrainCost.PLAIN*2);
+	}
+
+	// getEstimate()
+	// Returns the least a trip dx,dy cells across could cost - octile distance over the
+	// cheapest terrain - so searches guided by it still find the cheapest route.  The
+	// steps are weighted one at a time the way getStepCost() weights them, as scaling the
+	// whole distance would miss what getStepCost() rounds off each step.
+	public static int getEstimate(int dx, int dy)
+	{
+		dx = Math.abs(dx);
+		dy = Math.abs(dy);
+		int straight = Pathfinder.STRAIGHT*TerrainCost.CHEAPEST / TerrainCost.PLAIN;
+		int diagonal = Pathfinder.DIAGONAL*TerrainCost.CHEAPEST / TerrainCost.PLAIN;
+
+		return straight*(Math.max(dx, dy) - Math.min(dx, dy)) + diagonal*Math.min(dx, dy);
+	}
+
+	// hasLineOfSight()
+	// Returns true if a unit can move in a straight line from one position to the other
+	// without leaving walkable cells.  Walks every cell the line passes through, and where
+	// it passes exactly through a corner both cells beside the corner must be walkable.
+	public boolean hasLineOfSight(double x0, double y0, double x1, double y1)
+	{
+		int cx = clamp(floorCell(x0));
+		int cy = clamp(floorCell(y0));
+		int endX = clamp(floorCell(x1));
+		int endY = clamp(floorCell(y1));
+
+		if (!isWalkable(cx, cy))
+			return false;
+
+		double dx = x1 - x0;
+		double dy = y1 - y0;
+		int stepX = dx > 0 ? 1 : -1;
+		int stepY = dy > 0 ? 1 : -1;
+
+		// distance along the line (0 to 1) to the next vertical and horizontal cell edge
+		double nextX = Double.MAX_VALUE;
+		double nextY = Double.MAX_VALUE;
+		double deltaX = Double.MAX_VALUE;
+		double deltaY = Double.MAX_VALUE;
+
+		if (dx != 0)
+		{
+			nextX = ((stepX > 0 ? cx + 1 : cx)*CELL_SIZE - x0) / dx;
+			deltaX = CELL_SIZE / Math.abs(dx);
+		}
+		if (dy != 0)
+		{
+			nextY = ((stepY > 0 ? cy + 1 : cy)*CELL_SIZE - y0) / dy;
+			deltaY = CELL_SIZE / Math.abs(dy);
+		}
+
+		int steps = Math.abs(endX - cx) + Math.abs(endY - cy);
+
+		while (steps > 0)
+		{
+			if (nextX < nextY)
+			{
+				cx += stepX;
+				nextX += deltaX;
+				steps--;
+			}
+			else if (nextY < nextX)
+			{
+				cy += stepY;
+				nextY += deltaY;
+				steps--;
+			}
+			else
+			{
+				if (!isWalkable(cx + stepX, cy) || !isWalkable(cx, cy + stepY))
+					return false;
+
+				cx += stepX;
+				cy += stepY;
+				nextX += deltaX;
+				nextY += deltaY;
+				steps -= 2;
+			}
+
+			if (!isWalkable(cx, cy))
+				return false;
+		}
+
+		return true;
+	}
+
+	// findNearestWalkable()
+	// Returns the walkable cell closest to the given cell that is in the component (or
+	// any component if component is -1), searching outward in rings.  Returns -1 if
+	// there isn't one.
+	public int findNearestWalkable(int cell, int component)
+	{
+		int cx = cell % CELLS;
+		int cy = cell / CELLS;
+
+		if (isWalkable(cx, cy) && (component < 0 || components[cell] == component))
+			return cell;
+
+		for (int ring = 1; ring < CELLS; ring++)
+		{
+			int best = -1;
+			int bestDistance = Integer.MAX_VALUE;
+
+			for (int y = cy - ring; y <= cy + ring; y++)
+				for (int x = cx - ring; x <= cx + ring; x++)
+				{
+					// only the edge of the ring
+					if (Math.abs(x - cx) != ring && Math.abs(y - cy) != ring)
+						continue;
+					if (!isWalkable(x, y))
+						continue;
+					if (component >= 0 && components[y*CELLS + x] != component)
+						continue;
+
+					int distance = (x - cx)*(x - cx) + (y - cy)*(y - cy);
+					if (distance < bestDistance)
+					{
+						best = y*CELLS + x;
+						bestDistance = distance;
+					}
+				}
+
+			if (best >= 0)
+				return best;
+		}
+
+		return -1;
+	}
+
+	// floorCell()
+	// returns the cell coordinate for a position, which may be off the grid
+	private int floorCell(double position)
+	{
+		return (int)Math.floor(position / CELL_SIZE);
+	}
+
+	// clamp()
+	// keeps a cell coordinate on the grid
+	private int clamp(int c)
+	{
+		if (c < 0)
+			return 0;
+		if (c >= CELLS)
+			return CELLS - 1;
+
+		return c;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	// returns the cell holding the position x,y (a sprite's top left corner)
+	public int getCell(double x, double y)
+	{
+		return clamp(floorCell(y))*CELLS + clamp(floorCell(x));
+	}
+
+	// returns the position at the middle of the cell
+	public int getX(int cell)
+	{
+		return (cell % CELLS)*CELL_SIZE + CELL_SIZE/2;
+	}
+
+	public int getY(int cell)
+	{
+		return (cell / CELLS)*CELL_SIZE + CELL_SIZE/2;
+	}
+
+	public boolean isWalkable(int cx, int cy)
+	{
+		if (cx < 0 || cx >= CELLS || cy < 0 || cy >= CELLS)
+			return false;
+
+		return walkable[cy*CELLS + cx];
+	}
+
+	public int getComponent(int cell)
+	{
+		return components[cell];
+	}
+
+	// returns the terrain cost of the cell
+	public int getCost(int cell)
+	{
+		return costs[cell];
+	}
+}
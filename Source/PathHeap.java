@@ -0,0 +1,95 @@
+/*
+ * Name of code: PathHeap.java
+ * Description:  Open list for the path searches - a binary heap of nodes ordered by
+ *				 cost, lowest first.  A node can be added more than once with different
+ *				 costs, so searches skip nodes they have already closed when they come
+ *				 off the heap.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class PathHeap
+{
+	private int nodes[];
+	private int costs[];
+	private int size;
+
+	// PathHeap() - class constructor
+	public PathHeap(int capacity)
+	{
+		nodes = new int[capacity];
+		costs = new int[capacity];
+	}
+
+	// add()
+	// Adds a node with the given cost, growing the heap if it is full
+	public void add(int node, int cost)
+	{
+		if (size == nodes.length)
+		{
+			int grownNodes[] = new int[size*2];
+			int grownCosts[] = new int[size*2];
+			System.arraycopy(nodes, 0, grownNodes, 0, size);
+			System.arraycopy(costs, 0, grownCosts, 0, size);
+			nodes = grownNodes;
+			costs = grownCosts;
+		}
+
+		// sift up
+		int i = size++;
+		while (i > 0)
+		{
+			int up = (i - 1) / 2;
+			if (costs[up] <= cost)
+				break;
+
+			nodes[i] = nodes[up];
+			costs[i] = costs[up];
+			i = up;
+		}
+
+		nodes[i] = node;
+		costs[i] = cost;
+	}
+
+	// pop()
+	// Takes the node with the lowest cost off the heap
+	public int pop()
+	{
+		int top = nodes[0];
+		int node = nodes[--size];
+		int cost = costs[size];
+
+		// sift down
+		int i = 0;
+		while (i*2 + 1 < size)
+		{
+			int child = i*2 + 1;
+			if (child + 1 < size && costs[child + 1] < costs[child])
+				child++;
+			if (costs[child] >= cost)
+				break;
+
+			nodes[i] = nodes[child];
+			costs[i] = costs[child];
+			i = child;
+		}
+
+		nodes[i] = node;
+		costs[i] = cost;
+
+		return top;
+	}
+
+	// clear()
+	// empties the heap
+	public void clear()
+	{
+		size = 0;
+	}
+
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+}
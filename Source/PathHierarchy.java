@@ -0,0 +1,485 @@
+/*
+ * Name of code: PathHierarchy.java
+ * Description:  Abstract graph over a PathGrid for planning long trips (HPA*).  The grid
+ *				 is cut into square clusters, and wherever two neighbouring clusters are
+ *				 open to each other the cells on either side of the opening become
+ *				 entrance nodes.  Nodes of the same cluster are joined by the cost of the
+ *				 best walk between them inside the cluster.  Searches run over the nodes
+ *				 instead of the cells, and the walk between nodes is left to be planned
+ *				 when a unit gets there.  Built once per map.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class PathHierarchy
+{
+	// constants
+	public static final int CLUSTER_SIZE = 8;
+	public static final int CLUSTERS = PathGrid.CELLS / CLUSTER_SIZE;
+
+	// openings at least this many cells wide get a node at each end instead of one in
+	// the middle
+	public static final int WIDE_ENTRANCE = 6;
+
+	private PathGrid grid;
+
+	// entrance nodes, the cell each one is on, and the node on each cell (or -1)
+	private int numNodes;
+	private int nodeCells[];
+	private int cellNodes[];
+
+	// edges, packed: the edges leaving node n are edgeStart[n] up to edgeStart[n+1]
+	private int edgeStart[];
+	private int edgeTargets[];
+	private int edgeCosts[];
+
+	// the nodes in each cluster
+	private int clusterNodes[][];
+
+	// edges as they are found, before they are packed
+	private int numEdges;
+	private int foundFrom[];
+	private int foundTo[];
+	private int foundCosts[];
+
+	// search bookkeeping, valid when the searchId matches (see Pathfinder)
+	private PathHeap heap;
+	private int costs[];
+	private int parents[];
+	private int searchIds[];
+	private boolean closed[];
+	private int goalCosts[];
+	private int searchId;
+
+	// walks inside a single cluster, one entry per grid cell
+	private int localCosts[];
+	private int localIds[];
+	private boolean localClosed[];
+	private int localId;
+
+	// PathHierarchy() - class constructor
+	// Finds the entrances between clusters, then the cost of walking between the
+	// entrances of each cluster
+	public PathHierarchy(PathGrid pathGrid)
+	{
+		grid = pathGrid;
+		cellNodes = new int[PathGrid.CELLS*PathGrid.CELLS];
+		nodeCells = new int[64];
+		foundFrom = new int[256];
+		foundTo = new int[256];
+		foundCosts = new int[256];
+
+		for (int c = 0; c < PathGrid.CELLS*PathGrid.CELLS; c++)
+			cellNodes[c] = -1;
+
+		// openings between each cluster and the clusters to its east and south
+		for (int cy = 0; cy < CLUSTERS; cy++)
+			for (int cx = 0; cx < CLUSTERS; cx++)
+			{
+				if (cx + 1 < CLUSTERS)
+					findEntrances((cx + 1)*CLUSTER_SIZE - 1, cy*CLUSTER_SIZE, 1, 0);
+				if (cy + 1 < CLUSTERS)
+					findEntrances(cx*CLUSTER_SIZE, (cy + 1)*CLUSTER_SIZE - 1, 0, 1);
+			}
+
+		// sort the nodes into their clusters
+		int clusterCounts[] = new int[CLUSTERS*CLUSTERS];
+		for (int n = 0; n < numNodes; n++)
+			clusterCounts[getCluster(nodeCells[n])]++;
+
+		clusterNodes = new int[CLUSTERS*CLUSTERS][];
+		for (int c = 0; c < CLUSTERS*CLUSTERS; c++)
+		{
+			clusterNodes[c] = new int[clusterCounts[c]];
+			clusterCounts[c] = 0;
+		}
+
+		for (int n = 0; n < numNodes; n++)
+		{
+			int c = getCluster(nodeCells[n]);
+			clusterNodes[c][clusterCounts[c]++] = n;
+		}
+
+		// join the nodes of each cluster
+		createSearch();
+		for (int c = 0; c < CLUSTERS*CLUSTERS; c++)
+		{
+			int nodes[] = clusterNodes[c];
+
+			for (int i = 0; i < nodes.length; i++)
+			{
+				walkCluster(nodeCells[nodes[i]]);
+
+				for (int j = 0; j < nodes.length; j++)
+				{
+					int cost = getLocalCost(nodeCells[nodes[j]]);
+					if (j != i && cost >= 0)
+						addEdge(nodes[i], nodes[j], cost);
+				}
+			}
+		}
+
+		packEdges();
+	}
+
+	// PathHierarchy() - class constructor
+	// Shares the graph of another hierarchy, with its own search bookkeeping so the two
+	// can be searched on different threads at once
+	public PathHierarchy(PathHierarchy graph)
+	{
+		grid = graph.grid;
+		numNodes = graph.numNodes;
+		nodeCells = graph.nodeCells;
+		cellNodes = graph.cellNodes;
+		edgeStart = graph.edgeStart;
+		edgeTargets = graph.edgeTargets;
+		edgeCosts = graph.edgeCosts;
+		clusterNodes = graph.clusterNodes;
+		createSearch();
+	}
+
+	// PathHierarchy() - class constructor
+	// Reads the graph written by write() for the grid it was built on
+	public PathHierarchy(PathGrid pathGrid, ByteBuffer in) throws IOException
+	{
+		grid = pathGrid;
+		nodeCells = MapArtifact.readInts(in);
+		cellNodes = MapArtifact.readInts(in);
+		edgeStart = MapArtifact.readInts(in);
+		edgeTargets = MapArtifact.readInts(in);
+		edgeCosts = MapArtifact.readInts(in);
+		numNodes = edgeStart.length - 1;
+
+		if (cellNodes.length != PathGrid.CELLS*PathGrid.CELLS || numNodes < 0 || numNodes > nodeCells.length)
+			throw new IOException("path hierarchy does not fit the grid");
+
+		clusterNodes = new int[CLUSTERS*CLUSTERS][];
+		for (int c = 0; c < CLUSTERS*CLUSTERS; c++)
+			clusterNodes[c] = MapArtifact.readInts(in);
+
+		createSearch();
+	}
+
+	// write()
+	// Writes the nodes, the packed edges and the nodes in each cluster
+	public void write(DataOutputStream out) throws IOException
+	{
+		MapArtifact.writeInts(out, nodeCells);
+		MapArtifact.writeInts(out, cellNodes);
+		MapArtifact.writeInts(out, edgeStart);
+		MapArtifact.writeInts(out, edgeTargets);
+		MapArtifact.writeInts(out, edgeCosts);
+
+		for (int c = 0; c < CLUSTERS*CLUSTERS; c++)
+			MapArtifact.writeInts(out, clusterNodes[c]);
+	}
+
+	// createSearch()
+	// allocates the bookkeeping used by searches
+	private void createSearch()
+	{
+		heap = new PathHeap(256);
+		localCosts = new int[PathGrid.CELLS*PathGrid.CELLS];
+		localIds = new int[PathGrid.CELLS*PathGrid.CELLS];
+		localClosed = new boolean[PathGrid.CELLS*PathGrid.CELLS];
+		costs = new int[numNodes + 1];
+		parents = new int[numNodes + 1];
+		searchIds = new int[numNodes + 1];
+		closed = new boolean[numNodes + 1];
+		goalCosts = new int[numNodes];
+	}
+
+	// findEntrances()
+	// Scans the CLUSTER_SIZE cells starting at x,y along a cluster's east (stepX) or south
+	// (stepY) edge for runs of cells that are open on both sides, and adds a pair of nodes
+	// for each run.  Wide runs get a pair at each end.
+	private void findEntrances(int x, int y, int stepX, int stepY)
+	{
+		// cells along the edge are stepped through at right angles to the crossing
+		int alongX = stepY;
+		int alongY = stepX;
+		int runStart = -1;
+
+		for (int i = 0; i <= CLUSTER_SIZE; i++)
+		{
+			int cx = x + alongX*i;
+			int cy = y + alongY*i;
+			boolean open = i < CLUSTER_SIZE && grid.isWalkable(cx, cy) && grid.isWalkable(cx + stepX, cy + stepY);
+
+			if (open && runStart < 0)
+				runStart = i;
+
+			if (!open && runStart >= 0)
+			{
+				int runEnd = i - 1;
+
+				if (runEnd - runStart + 1 >= WIDE_ENTRANCE)
+				{
+					addEntrance(x + alongX*runStart, y + alongY*runStart, stepX, stepY);
+					addEntrance(x + alongX*runEnd, y + alongY*runEnd, stepX, stepY);
+				}
+				else
+				{
+					int middle = (runStart + runEnd) / 2;
+					addEntrance(x + alongX*middle, y + alongY*middle, stepX, stepY);
+				}
+
+				runStart = -1;
+			}
+		}
+	}
+
+	// addEntrance()
+	// Adds nodes on the cell x,y and the cell across the cluster edge from it, joined by a
+	// single step
+	private void addEntrance(int x, int y, int stepX, int stepY)
+	{
+		int inside = getNode(y*PathGrid.CELLS + x);
+		int outside = getNode((y + stepY)*PathGrid.CELLS + x + stepX);
+
+		int cost = grid.getStepCost(x, y, stepX, stepY);
+		addEdge(inside, outside, cost);
+		addEdge(outside, inside, cost);
+	}
+
+	// getNode()
+	// returns the node on a cell, adding one if there isn't one yet
+	private int getNode(int cell)
+	{
+		if (cellNodes[cell] >= 0)
+			return cellNodes[cell];
+
+		if (numNodes == nodeCells.length)
+		{
+			int grown[] = new int[numNodes*2];
+			System.arraycopy(nodeCells, 0, grown, 0, numNodes);
+			nodeCells = grown;
+		}
+
+		nodeCells[numNodes] = cell;
+		cellNodes[cell] = numNodes;
+		return numNodes++;
+	}
+
+	// addEdge()
+	// Records an edge to be packed once every edge is found
+	private void addEdge(int from, int to, int cost)
+	{
+		if (numEdges == foundFrom.length)
+		{
+			int grownFrom[] = new int[numEdges*2];
+			int grownTo[] = new int[numEdges*2];
+			int grownCosts[] = new int[numEdges*2];
+			System.arraycopy(foundFrom, 0, grownFrom, 0, numEdges);
+			System.arraycopy(foundTo, 0, grownTo, 0, numEdges);
+			System.arraycopy(foundCosts, 0, grownCosts, 0, numEdges);
+			foundFrom = grownFrom;
+			foundTo = grownTo;
+			foundCosts = grownCosts;
+		}
+
+		foundFrom[numEdges] = from;
+		foundTo[numEdges] = to;
+		foundCosts[numEdges] = cost;
+		numEdges++;
+	}
+
+	// packEdges()
+	// Packs the edges found into one array ordered by the node they leave from
+	private void packEdges()
+	{
+		edgeStart = new int[numNodes + 1];
+		edgeTargets = new int[numEdges];
+		edgeCosts = new int[numEdges];
+
+		for (int e = 0; e < numEdges; e++)
+			edgeStart[foundFrom[e] + 1]++;
+		for (int n = 0; n < numNodes; n++)
+			edgeStart[n + 1] += edgeStart[n];
+
+		int fill[] = new int[numNodes];
+		System.arraycopy(edgeStart, 0, fill, 0, numNodes);
+
+		for (int e = 0; e < numEdges; e++)
+		{
+			int slot = fill[foundFrom[e]]++;
+			edgeTargets[slot] = foundTo[e];
+			edgeCosts[slot] = foundCosts[e];
+		}
+
+		foundFrom = null;
+		foundTo = null;
+		foundCosts = null;
+	}
+
+	// walkCluster()
+	// Works out the cost of walking from a cell to every cell of its cluster without
+	// leaving the cluster.  Read the results with getLocalCost().
+	private void walkCluster(int from)
+	{
+		int cluster = getCluster(from);
+		int minX = (cluster % CLUSTERS)*CLUSTER_SIZE;
+		int minY = (cluster / CLUSTERS)*CLUSTER_SIZE;
+
+		localId++;
+		heap.clear();
+		localIds[from] = localId;
+		localCosts[from] = 0;
+		localClosed[from] = false;
+		heap.add(from, 0);
+
+		while (!heap.isEmpty())
+		{
+			int cell = heap.pop();
+			if (localClosed[cell])
+				continue;
+
+			localClosed[cell] = true;
+			int cx = cell % PathGrid.CELLS;
+			int cy = cell / PathGrid.CELLS;
+
+			for (int dy = -1; dy <= 1; dy++)
+				for (int dx = -1; dx <= 1; dx++)
+				{
+					int nx = cx + dx;
+					int ny = cy + dy;
+
+					if (nx < minX || nx >= minX + CLUSTER_SIZE || ny < minY || ny >= minY + CLUSTER_SIZE)
+						continue;
+					if ((dx == 0 && dy == 0) || !grid.canStep(cx, cy, dx, dy))
+						continue;
+
+					int next = ny*PathGrid.CELLS + nx;
+					int cost = localCosts[cell] + grid.getStepCost(cx, cy, dx, dy);
+
+					if (localIds[next] == localId && (localClosed[next] || localCosts[next] <= cost))
+						continue;
+
+					localIds[next] = localId;
+					localCosts[next] = cost;
+					localClosed[next] = false;
+					heap.add(next, cost);
+				}
+		}
+	}
+
+	// getLocalCost()
+	// returns the cost of reaching a cell in the last walkCluster(), or -1 if it can't be
+	// reached
+	private int getLocalCost(int cell)
+	{
+		if (localIds[cell] != localId)
+			return -1;
+
+		return localCosts[cell];
+	}
+
+	// search()
+	// Finds a route from one walkable cell to another over the entrance nodes.  The
+	// route is every cell the unit should head for in turn, both ends included; the walk
+	// between them still has to be planned.  Returns null when the cells share a cluster or
+	// no route is found, and the trip should be searched on the grid instead.
+	public int[] search(int from, int to)
+	{
+		int startCluster = getCluster(from);
+		int goalCluster = getCluster(to);
+		if (startCluster == goalCluster)
+			return null;
+
+		int goal = numNodes;
+		int goalNodes[] = clusterNodes[goalCluster];
+
+		// the walk from each node of the goal's cluster to the goal
+		walkCluster(to);
+		for (int i = 0; i < goalNodes.length; i++)
+			goalCosts[goalNodes[i]] = getLocalCost(nodeCells[goalNodes[i]]);
+
+		searchId++;
+		heap.clear();
+
+		// start from every node the unit can walk to inside its own cluster
+		walkCluster(from);
+		int startNodes[] = clusterNodes[startCluster];
+		for (int i = 0; i < startNodes.length; i++)
+		{
+			int cost = getLocalCost(nodeCells[startNodes[i]]);
+			if (cost >= 0)
+				open(startNodes[i], -1, cost, to);
+		}
+
+		while (!heap.isEmpty())
+		{
+			int node = heap.pop();
+			if (closed[node])
+				continue;
+
+			closed[node] = true;
+			if (node == goal)
+				break;
+
+			for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++)
+				open(edgeTargets[e], node, costs[node] + edgeCosts[e], to);
+
+			if (getCluster(nodeCells[node]) == goalCluster && goalCosts[node] >= 0)
+				open(goal, node, costs[node] + goalCosts[node], to);
+		}
+
+		if (searchIds[goal] != searchId || !closed[goal])
+			return null;
+
+		int length = 2;
+		for (int node = parents[goal]; node != -1; node = parents[node])
+			length++;
+
+		int cells[] = new int[length];
+		cells[0] = from;
+		cells[--length] = to;
+		for (int node = parents[goal]; node != -1; node = parents[node])
+			cells[--length] = nodeCells[node];
+
+		return cells;
+	}
+
+	// open()
+	// Adds a node to the open list if this is the cheapest way found to it so far
+	private void open(int node, int parent, int cost, int goal)
+	{
+		if (searchIds[node] == searchId && (closed[node] || costs[node] <= cost))
+			return;
+
+		searchIds[node] = searchId;
+		closed[node] = false;
+		costs[node] = cost;
+		parents[node] = parent;
+
+		int cell = node < numNodes ? nodeCells[node] : goal;
+		int dx = cell % PathGrid.CELLS - goal % PathGrid.CELLS;
+		int dy = cell / PathGrid.CELLS - goal / PathGrid.CELLS;
+		int estimate = cost + PathGrid.getEstimate(dx, dy);
+
+		heap.add(node, estimate);
+	}
+
+	// getCluster()
+	// returns the cluster a cell is in
+	private int getCluster(int cell)
+	{
+		int cx = (cell % PathGrid.CELLS) / CLUSTER_SIZE;
+		int cy = (cell / PathGrid.CELLS) / CLUSTER_SIZE;
+
+		return cy*CLUSTERS + cx;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	public int getNumNodes()
+	{
+		return numNodes;
+	}
+}
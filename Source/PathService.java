@@ -0,0 +1,188 @@
+/*
+ * Name of code: PathService.java
+ * Description:  Runs route searches on a small pool of worker threads so a lot of
+ *				 orders at once don't stall the game loop.  Requests made during a tick
+ *				 are collected, duplicates (same start and goal cell) are merged, and the
+ *				 batch is handed to the workers at the end of the tick.  GamePlay collects
+ *				 the results at the start of the next tick, waiting for any that aren't
+ *				 done, so units always get their routes exactly one tick after asking no
+ *				 matter how the threads are scheduled.  Paths over the navigation mesh
+ *				 are asked for and handed out the same way.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.*;
+
+public class PathService
+{
+	// constants
+	public static final int MAX_THREADS = 4;
+	public static final int QUEUE_SIZE = 256;
+
+	// idle workers are let go after this long, so an old level's pool doesn't hang about
+	public static final int IDLE_TIME = 1000;
+
+	private PathGrid grid;
+	private Pathfinder pathfinder;
+	private NavMesh navMesh;
+	private ThreadPoolExecutor workers;
+
+	// each worker keeps its own copy of the pathfinder and mesh, as searches can't share
+	// bookkeeping.  The pathfinder copies share the game's route cache.
+	private ThreadLocal<Pathfinder> pathfinders;
+	private ThreadLocal<NavMesh> navMeshes;
+
+	// requests made this tick, by start and goal cell (or point, over the mesh)
+	private HashMap<Integer, FutureTask<int[]>> batch;
+	private HashMap<Long, FutureTask<int[]>> meshBatch;
+	private ArrayList<FutureTask<int[]>> batchOrder;
+
+	// PathService() - class constructor
+	// Starts up to MAX_THREADS workers, leaving a processor for the game loop.  When the
+	// queue is full the game loop runs the search itself rather than falling further
+	// behind.  The mesh may be null if the map doesn't have one.
+	public PathService(PathGrid pathGrid, Pathfinder routes, NavMesh mesh)
+	{
+		grid = pathGrid;
+		pathfinder = routes;
+		navMesh = mesh;
+
+		int threads = Math.max(1, Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+
+		workers = new ThreadPoolExecutor(threads, threads, IDLE_TIME, TimeUnit.MILLISECONDS,
+										 new ArrayBlockingQueue<Runnable>(QUEUE_SIZE),
+										 new ThreadFactory()
+										 {
+											 public Thread newThread(Runnable r)
+											 {
+												 Thread thread = new Thread(r, "Path worker");
+												 thread.setDaemon(true);
+												 return thread;
+											 }
+										 },
+										 new ThreadPoolExecutor.CallerRunsPolicy());
+		workers.allowCoreThreadTimeOut(true);
+
+		pathfinders = new ThreadLocal<Pathfinder>()
+		{
+			protected Pathfinder initialValue()
+			{
+				return new Pathfinder(pathfinder);
+			}
+		};
+
+		navMeshes = new ThreadLocal<NavMesh>()
+		{
+			protected NavMesh initialValue()
+			{
+				return new NavMesh(navMesh);
+			}
+		};
+
+		batch = new HashMap<Integer, FutureTask<int[]>>();
+		meshBatch = new HashMap<Long, FutureTask<int[]>>();
+		batchOrder = new ArrayList<FutureTask<int[]>>(QUEUE_SIZE);
+	}
+
+	// request()
+	// Asks for the route from startX,startY to goalX,goalY (see Pathfinder.findPath()).
+	// Straight walks are worked out on the spot and come back already done; anything else
+	// is searched once the tick's batch is sent off.
+	public Future<int[]> request(int startX, int startY, int goalX, int goalY)
+	{
+		if (grid.hasLineOfSight(startX, startY, goalX, goalY))
+		{
+			FutureTask<int[]> done = new FutureTask<int[]>(new Runnable() { public void run() { } }, Pathfinder.NO_ROUTE);
+			done.run();
+			return done;
+		}
+
+		final int start = grid.getCell(startX, startY);
+		final int goal = grid.getCell(goalX, goalY);
+		Integer key = Integer.valueOf(start*PathGrid.CELLS*PathGrid.CELLS + goal);
+
+		FutureTask<int[]> task = batch.get(key);
+		if (task != null)
+			return task;
+
+		task = new FutureTask<int[]>(new Callable<int[]>()
+		{
+			public int[] call()
+			{
+				return pathfinders.get().findRoute(start, goal);
+			}
+		});
+
+		batch.put(key, task);
+		batchOrder.add(task);
+
+		return task;
+	}
+
+	// requestOnMesh()
+	// Asks for the corners of the path from startX,startY to goalX,goalY over the
+	// navigation mesh (see NavMesh.findPath()).  Straight walks come back already done, as
+	// with request().
+	public Future<int[]> requestOnMesh(final int startX, final int startY, final int goalX, final int goalY)
+	{
+		if (grid.hasLineOfSight(startX, startY, goalX, goalY))
+		{
+			FutureTask<int[]> done = new FutureTask<int[]>(new Runnable() { public void run() { } }, NavMesh.NO_PATH);
+			done.run();
+			return done;
+		}
+
+		// positions are well within 16 bits
+		Long key = Long.valueOf(((long)(startX & 0xFFFF) << 48) | ((long)(startY & 0xFFFF) << 32) |
+								((long)(goalX & 0xFFFF) << 16) | (goalY & 0xFFFF));
+
+		FutureTask<int[]> task = meshBatch.get(key);
+		if (task != null)
+			return task;
+
+		task = new FutureTask<int[]>(new Callable<int[]>()
+		{
+			public int[] call()
+			{
+				return navMeshes.get().findPath(startX, startY, goalX, goalY);
+			}
+		});
+
+		meshBatch.put(key, task);
+		batchOrder.add(task);
+
+		return task;
+	}
+
+	// flush()
+	// Hands this tick's requests to the workers.  Called at the end of each tick.
+	public void flush()
+	{
+		for (int i = 0; i < batchOrder.size(); i++)
+			workers.execute(batchOrder.get(i));
+
+		batchOrder.clear();
+		batch.clear();
+		meshBatch.clear();
+	}
+
+	// getRoute()
+	// Waits for a requested route.  A search that failed leaves the unit to walk straight.
+	public static int[] getRoute(Future<int[]> request)
+	{
+		try
+		{
+			return request.get();
+		}
+		catch (InterruptedException interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException failed) { }
+
+		return Pathfinder.NO_ROUTE;
+	}
+}
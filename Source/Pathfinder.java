@@ -0,0 +1,264 @@
+/*
+ * Name of code: Pathfinder.java
+ * Description:  Plans routes around the obstacles on a map with A* over the map's
+ *				 PathGrid, or over the map's PathHierarchy for long trips.  Routes are
+ *				 smoothed down to the corners a unit actually has to turn at, and recent
+ *				 routes are kept in a cache keyed by start and goal cell, since groups of
+ *				 units tend to ask for the same route.  One pathfinder is shared by every
+ *				 unit in the level, and the copies PathService's workers search with
+ *				 share its cache.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+
+public class Pathfinder
+{
+	// constants
+	public static final int CACHE_SIZE = 256;
+
+	// step costs - straight and diagonal
+	public static final int STRAIGHT = 10;
+	public static final int DIAGONAL = 14;
+
+	// trips longer than this many cells across are planned on the cluster graph
+	public static final int HIERARCHY_DISTANCE = PathHierarchy.CLUSTER_SIZE*2;
+
+	// the route given when a unit can walk straight to its goal
+	public static final int NO_ROUTE[] = new int[0];
+
+	private PathGrid grid;
+	private PathHierarchy hierarchy;
+
+	// shared by every copy of the pathfinder, so it's only used while holding its lock
+	private LinkedHashMap<Integer, int[]> cache;
+
+	// A* bookkeeping, one entry per cell.  A cell's entries are only valid when its
+	// searchId matches the current search, so nothing has to be cleared between searches.
+	private int costs[];
+	private int parents[];
+	private int searchIds[];
+	private boolean closed[];
+	private int searchId;
+
+	// open list of cells, ordered by estimated total cost
+	private PathHeap heap;
+
+	// Pathfinder() - class constructor
+	// The hierarchy may be null, in which case every route is searched on the grid
+	public Pathfinder(PathGrid pathGrid, PathHierarchy pathHierarchy)
+	{
+		grid = pathGrid;
+		hierarchy = pathHierarchy;
+
+		// least recently used routes are dropped once the cache is full
+		cache = new LinkedHashMap<Integer, int[]>(CACHE_SIZE, 0.75f, true)
+		{
+			protected boolean removeEldestEntry(Entry<Integer, int[]> eldest)
+			{
+				return size() > CACHE_SIZE;
+			}
+		};
+
+		createSearch();
+	}
+
+	// Pathfinder() - class constructor
+	// Shares the grid and route cache of another pathfinder, with its own search
+	// bookkeeping (and hierarchy) so the two can search on different threads at once
+	public Pathfinder(Pathfinder pathfinder)
+	{
+		grid = pathfinder.grid;
+		if (pathfinder.hierarchy != null)
+			hierarchy = new PathHierarchy(pathfinder.hierarchy);
+		cache = pathfinder.cache;
+		createSearch();
+	}
+
+	// createSearch()
+	// allocates the A* bookkeeping
+	private void createSearch()
+	{
+		costs = new int[PathGrid.CELLS*PathGrid.CELLS];
+		parents = new int[PathGrid.CELLS*PathGrid.CELLS];
+		searchIds = new int[PathGrid.CELLS*PathGrid.CELLS];
+		closed = new boolean[PathGrid.CELLS*PathGrid.CELLS];
+		heap = new PathHeap(PathGrid.CELLS*PathGrid.CELLS);
+	}
+
+	// findPath()
+	// Returns the cells a unit at startX,startY should walk through, in order, to get to
+	// goalX,goalY.  The last cell is the goal's cell, or the nearest cell the unit can
+	// reach if the goal is blocked.  An empty route means the unit can walk straight to
+	// the goal (or can't get any closer).  The unit may not be able to walk straight
+	// between cells on long routes - it should plan each leg with findPath() as it gets
+	// to it.  Routes may be shared, so don't change them.
+	public int[] findPath(int startX, int startY, int goalX, int goalY)
+	{
+		if (grid.hasLineOfSight(startX, startY, goalX, goalY))
+			return NO_ROUTE;
+
+		return findRoute(grid.getCell(startX, startY), grid.getCell(goalX, goalY));
+	}
+
+	// findRoute()
+	// Works like findPath() from the start cell to the goal cell, without checking for a
+	// straight walk first.  The route only depends on the two cells, so if two threads
+	// plan the same one at once it doesn't matter whose ends up in the cache.
+	public int[] findRoute(int start, int goal)
+	{
+		Integer key = Integer.valueOf(start*PathGrid.CELLS*PathGrid.CELLS + goal);
+
+		int route[];
+		synchronized (cache)
+		{
+			route = cache.get(key);
+		}
+
+		if (route == null)
+		{
+			route = plan(start, goal);
+			synchronized (cache)
+			{
+				cache.put(key, route);
+			}
+		}
+
+		return route;
+	}
+
+	// plan()
+	// Plans a route from the start cell to the goal cell.  A unit standing in a blocked
+	// cell starts from the closest walkable one, and a blocked or unreachable goal is
+	// swapped for the closest cell that can be reached.  Long trips are planned on the
+	// cluster graph, leaving the unit to fill in the steps between entrances as it goes.
+	private int[] plan(int start, int goal)
+	{
+		int from = grid.findNearestWalkable(start, -1);
+		if (from < 0)
+			return NO_ROUTE;
+
+		int to = grid.findNearestWalkable(goal, grid.getComponent(from));
+		if (to < 0 || to == from)
+			return NO_ROUTE;
+
+		int cells[] = null;
+
+		int dx = Math.abs(from % PathGrid.CELLS - to % PathGrid.CELLS);
+		int dy = Math.abs(from / PathGrid.CELLS - to / PathGrid.CELLS);
+		if (hierarchy != null && Math.max(dx, dy) > HIERARCHY_DISTANCE)
+			cells = hierarchy.search(from, to);
+
+		if (cells == null)
+			cells = search(from, to);
+
+		return smooth(cells, start != from);
+	}
+
+	// search()
+	// Runs A* over the grid from one walkable cell to another in the same component and
+	// returns every cell on the way, both ends included
+	private int[] search(int from, int to)
+	{
+		searchId++;
+		heap.clear();
+		open(from, -1, 0, to);
+
+		while (!heap.isEmpty())
+		{
+			int cell = heap.pop();
+			if (closed[cell])
+				continue;
+
+			closed[cell] = true;
+			if (cell == to)
+				break;
+
+			int cx = cell % PathGrid.CELLS;
+			int cy = cell / PathGrid.CELLS;
+
+			for (int dy = -1; dy <= 1; dy++)
+				for (int dx = -1; dx <= 1; dx++)
+				{
+					if ((dx == 0 && dy == 0) || !grid.canStep(cx, cy, dx, dy))
+						continue;
+
+					int next = (cy + dy)*PathGrid.CELLS + cx + dx;
+					int cost = costs[cell] + grid.getStepCost(cx, cy, dx, dy);
+					open(next, cell, cost, to);
+				}
+		}
+
+		int length = 0;
+		for (int cell = to; cell != -1; cell = parents[cell])
+			length++;
+
+		int cells[] = new int[length];
+		for (int cell = to; cell != -1; cell = parents[cell])
+			cells[--length] = cell;
+
+		return cells;
+	}
+
+	// open()
+	// Adds a cell to the open list if this is the cheapest way found to it so far
+	private void open(int cell, int parent, int cost, int goal)
+	{
+		if (searchIds[cell] == searchId && (closed[cell] || costs[cell] <= cost))
+			return;
+
+		searchIds[cell] = searchId;
+		closed[cell] = false;
+		costs[cell] = cost;
+		parents[cell] = parent;
+
+		int dx = cell % PathGrid.CELLS - goal % PathGrid.CELLS;
+		int dy = cell / PathGrid.CELLS - goal / PathGrid.CELLS;
+		int estimate = cost + PathGrid.getEstimate(dx, dy);
+
+		heap.add(cell, estimate);
+	}
+
+	// smooth()
+	// Drops every cell on the way the unit can skip by walking in a straight line over the
+	// same terrain, so shortcuts don't leave a road.  The first cell is only kept if the
+	// unit has to get off a blocked cell onto it.
+	private int[] smooth(int cells[], boolean keepFirst)
+	{
+		int length = cells.length;
+		int smoothed[] = new int[length];
+		int count = 0;
+		int anchor = 0;
+
+		if (keepFirst)
+			smoothed[count++] = cells[0];
+
+		while (anchor < length - 1)
+		{
+			// keep going while the next cell can still be seen from the anchor
+			int next = anchor + 1;
+			while (next + 1 < length && grid.getCost(cells[next + 1]) == grid.getCost(cells[anchor]) &&
+				   grid.hasLineOfSight(grid.getX(cells[anchor]), grid.getY(cells[anchor]),
+									   grid.getX(cells[next + 1]), grid.getY(cells[next + 1])))
+				next++;
+
+			smoothed[count++] = cells[next];
+			anchor = next;
+		}
+
+		int route[] = new int[count];
+		System.arraycopy(smoothed, 0, route, 0, count);
+		return route;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	public PathGrid getGrid()
+	{
+		return grid;
+	}
+}
@@ -23,22 +23,8 @@ public class PowerupCollision extends CollisionGroup
 	// and the bonus is applied to the colliding unit.
 	public void collided(Sprite s1, Sprite s2)
 	{	
-		int id = s1.getID();
-	
-		Unit unit;
-		
-		// Enemy Unit
-		if (id < 0)
-		{
-			id = Math.abs(id) - 1;
-			unit = gamePlay.enemyUnits[id];
-		}
-		
-		// Friendly Unit
-		else
-		{
-			unit = gamePlay.friendlyUnits[id];	
-		}
+		// a unit's sprite ID is its entity
+		Unit unit = gamePlay.getEntities().getUnit(s1.getID());
 		
 		int id2 = s2.getID();
 		
@@ -23,6 +23,8 @@ public class Projectile
 	private AnimatedSprite sprite;
 	private boolean alive;
 	private int type;
+	private double previousX;
+	private double previousY;
 	
 	// Projectile() - class constructor
 	// Initializes the sprite based on the type. Sets up the animation
@@ -46,6 +48,16 @@ public class Projectile
 			sprite.setImages(gamePlay.getImages("Graphics/Abilities/lightning.png", 3, 1));
 	}
 	
+	// init()
+	// Readies the projectile for a new game when its unit is used again (see
+	// Unit.init())
+	public void init(GamePlay p)
+	{
+		gamePlay = p;
+		alive = false;
+		targetUnit = null;
+	}
+	
 	// spawn()
 	// Spawns the projectile heading toward the specified target
 	public void spawn(Unit target, int direction)
@@ -80,6 +92,8 @@ public class Projectile
 		
 		sprite.setX(x + 32);
 		sprite.setY(y + 20);
+		previousX = sprite.getX();
+		previousY = sprite.getY();
 	}
 	
 	// update()
@@ -104,12 +118,24 @@ public class Projectile
 		}	
 	}
 	
+	// savePosition()
+	// remembers the projectile's position at the start of a tick (see Unit.saveProjectilePositions())
+	public void savePosition()
+	{
+		previousX = sprite.getX();
+		previousY = sprite.getY();
+	}
+	
 	// render()
-	// draws the projectile to the screen;
-	public void render(Graphics2D g, Point camera)
+	// draws the projectile to the screen, blended between the previous and current tick
+	public void render(Graphics2D g, Point camera, double alpha)
 	{
-		if (alive)
-			sprite.render(g, (int)sprite.getX() - camera.x, (int)sprite.getY() - camera.y);
+		if (!alive)
+			return;
+		
+		int x = (int)(previousX + (sprite.getX() - previousX)*alpha);
+		int y = (int)(previousY + (sprite.getY() - previousY)*alpha);
+		sprite.render(g, x - camera.x, y - camera.y);
 	}
 	
 	// ******
@@ -0,0 +1,153 @@
+/*
+ * Name of code: QuadtreeBroadphase.java
+ * Description:  Broadphase that stores each box in the smallest quadtree node that fully
+ *				 contains it.  Boxes are only tested against boxes in the same node and in
+ *				 the nodes below it, since boxes in separate branches can't overlap.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class QuadtreeBroadphase implements Broadphase
+{
+	// constants
+	// nodes stop splitting once they are about the size of a unit
+	public static final int MAX_DEPTH = 5;
+
+	private int nodes;
+
+	// node contents, packed the same way as GridBroadphase
+	private int nodeStart[];
+	private int nodeFill[];
+	private int entries[];
+	private int boxNode[];
+
+	// QuadtreeBroadphase() - class constructor
+	public QuadtreeBroadphase()
+	{
+		// a complete tree - 1 + 4 + 16 + ... nodes
+		nodes = 0;
+		for (int depth = 0; depth <= MAX_DEPTH; depth++)
+			nodes += 1 << (2*depth);
+
+		nodeStart = new int[nodes + 1];
+		nodeFill = new int[nodes];
+		entries = new int[64];
+		boxNode = new int[64];
+	}
+
+	// findPairs()
+	// See Broadphase
+	public void findPairs(double left[], double top[], double right[], double bottom[], int count, PairList pairs)
+	{
+		if (entries.length < count)
+		{
+			entries = new int[count*2];
+			boxNode = new int[count*2];
+		}
+
+		java.util.Arrays.fill(nodeStart, 0);
+
+		for (int i = 0; i < count; i++)
+		{
+			boxNode[i] = findNode(left[i], top[i], right[i], bottom[i]);
+			nodeStart[boxNode[i] + 1]++;
+		}
+
+		for (int n = 0; n < nodes; n++)
+			nodeStart[n + 1] += nodeStart[n];
+
+		System.arraycopy(nodeStart, 0, nodeFill, 0, nodes);
+		for (int i = 0; i < count; i++)
+			entries[nodeFill[boxNode[i]]++] = i;
+
+		testNode(0, left, top, right, bottom, pairs);
+	}
+
+	// testNode()
+	// Tests the boxes in a node against each other and against every box below the node,
+	// then moves down the tree
+	private void testNode(int node, double left[], double top[], double right[], double bottom[], PairList pairs)
+	{
+		for (int a = nodeStart[node]; a < nodeStart[node + 1]; a++)
+		{
+			int i = entries[a];
+
+			for (int b = a + 1; b < nodeStart[node + 1]; b++)
+				testPair(i, entries[b], left, top, right, bottom, pairs);
+
+			testSubtree(i, node, left, top, right, bottom, pairs);
+		}
+
+		if (4*node + 1 < nodes)
+			for (int child = 4*node + 1; child <= 4*node + 4; child++)
+				testNode(child, left, top, right, bottom, pairs);
+	}
+
+	// testSubtree()
+	// Tests box i against every box stored below the given node
+	private void testSubtree(int i, int node, double left[], double top[], double right[], double bottom[], PairList pairs)
+	{
+		if (4*node + 1 >= nodes)
+			return;
+
+		for (int child = 4*node + 1; child <= 4*node + 4; child++)
+		{
+			for (int b = nodeStart[child]; b < nodeStart[child + 1]; b++)
+				testPair(i, entries[b], left, top, right, bottom, pairs);
+
+			testSubtree(i, child, left, top, right, bottom, pairs);
+		}
+	}
+
+	// testPair()
+	// Adds the pair if the two boxes overlap
+	private void testPair(int i, int j, double left[], double top[], double right[], double bottom[], PairList pairs)
+	{
+		if (left[i] >= right[j] || left[j] >= right[i] || top[i] >= bottom[j] || top[j] >= bottom[i])
+			return;
+
+		if (i < j)
+			pairs.add(i, j);
+		else
+			pairs.add(j, i);
+	}
+
+	// findNode()
+	// Walks down from the root to the smallest node that fully contains the box.  Node
+	// n's children are 4n+1 through 4n+4.
+	private int findNode(double left, double top, double right, double bottom)
+	{
+		int node = 0;
+		double x = 0;
+		double y = 0;
+		double size = Map.SIZE;
+
+		for (int depth = 0; depth < MAX_DEPTH; depth++)
+		{
+			double half = size / 2;
+			int column;
+			int row;
+
+			if (right <= x + half)
+				column = 0;
+			else if (left >= x + half)
+				column = 1;
+			else
+				break;
+
+			if (bottom <= y + half)
+				row = 0;
+			else if (top >= y + half)
+				row = 1;
+			else
+				break;
+
+			x += column*half;
+			y += row*half;
+			node = 4*node + 1 + row*2 + column;
+			size = half;
+		}
+
+		return node;
+	}
+}
@@ -18,17 +18,46 @@ public class RTS extends GameEngine
 	public static final int GAME_PLAY = 2;
 	public static final int GAME_CREDITS = 3;
 	
+	// the range of frame rates the screen is drawn at
+	public static final int MIN_FPS = 60;
+	public static final int MAX_FPS = 144;
+	
 	public String gameFile;
 	public boolean graphicsLoaded;
 	
+	// units left over from finished games, for the next game to use again
+	public UnitPool unitPool = new UnitPool();
+	
+	// units plan their own routes on the grid (A* and the cluster hierarchy) instead of
+	// the navigation mesh - the gridrouting command line option
+	public boolean gridRouting;
+	
+	// group move orders are planned cooperatively (see CooperativePlanner) - the
+	// cooperative command line option
+	public boolean cooperativeMoves;
+	
 	public void initResources()
 	{
-		setFPS(30);
+		// the game world always ticks at GamePlay.TICK_RATE, so the screen can be drawn
+		// at the display's refresh rate without speeding up combat
+		setFPS(getRefreshRate());
 		graphicsLoaded = false;
 		nextGameID = GAME_MENU;
 		hideCursor();
 	}
 	
+	// getRefreshRate()
+	// Returns the refresh rate of the display, kept between MIN_FPS and MAX_FPS.  Displays
+	// that don't report one are drawn at MIN_FPS.
+	private int getRefreshRate()
+	{
+		int rate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+		if (rate == DisplayMode.REFRESH_RATE_UNKNOWN)
+			return MIN_FPS;
+		
+		return Math.max(MIN_FPS, Math.min(MAX_FPS, rate));
+	}
+	
 	public GameObject getGame(int GameID)
 	{
 		switch (GameID)
@@ -49,8 +78,15 @@ public class RTS extends GameEngine
 	// Game Engine Stuff
 	public static void main(String[] args)
 	{	
+		RTS rts = new RTS();
+		for (int i = 0; i < args.length; i++)
+			if (args[i].equals("gridrouting"))
+				rts.gridRouting = true;
+			else if (args[i].equals("cooperative"))
+				rts.cooperativeMoves = true;
+		
 		GameLoader game = new GameLoader();
-		game.setup(new RTS(), new Dimension(1024, 768), true);
+		game.setup(rts, new Dimension(1024, 768), true);
 		game.start();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+/*
+ * Name of code: ReservationTable.java
+ * Description:  Space-time reservations for cooperative pathfinding.  Each entry says a
+ *				 unit will be in a PathGrid cell during a time slot, so units planned later
+ *				 can route around it.  Entries are kept in an open addressed hash table
+ *				 keyed by slot and cell.  Slots count up from the start of the game and old
+ *				 ones are thrown away as time moves on.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class ReservationTable
+{
+	// constants
+	public static final int INITIAL_CAPACITY = 4096;
+
+	private static final long EMPTY = -1;
+
+	private long keys[];
+	private Unit owners[];
+	private int size;
+
+	// ReservationTable() - class constructor
+	public ReservationTable()
+	{
+		keys = new long[INITIAL_CAPACITY];
+		owners = new Unit[INITIAL_CAPACITY];
+
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = EMPTY;
+	}
+
+	// reserve()
+	// Reserves the cell during the slot for the unit.  A slot someone else already has
+	// is left with them.
+	public void reserve(int cell, long slot, Unit unit)
+	{
+		// keep the table at most half full
+		if ((size + 1)*2 > keys.length)
+			rebuild(keys.length*2, -1, null);
+
+		long key = getKey(cell, slot);
+		int i = find(key);
+
+		if (keys[i] == EMPTY)
+		{
+			keys[i] = key;
+			owners[i] = unit;
+			size++;
+		}
+	}
+
+	// release()
+	// Drops every reservation the unit has, along with any from before the slot
+	public void release(Unit unit, long slot)
+	{
+		rebuild(keys.length, slot, unit);
+	}
+
+	// mark()
+	// Sets taken[(slot - first)*cells + cell] for every cell someone other than the unit
+	// has during the count slots from first, where cells is the number of PathGrid cells
+	public void mark(boolean taken[], long first, int count, Unit unit)
+	{
+		int cells = PathGrid.CELLS*PathGrid.CELLS;
+		
+		for (int i = 0; i < keys.length; i++)
+		{
+			if (keys[i] == EMPTY || owners[i] == unit)
+				continue;
+			
+			long slot = keys[i] / cells;
+			if (slot >= first && slot < first + count)
+				taken[(int)(slot - first)*cells + (int)(keys[i] % cells)] = true;
+		}
+	}
+	
+	// rebuild()
+	// Rehashes the table into the given capacity, leaving out reservations for slots
+	// before oldest and those held by the unit (if not null)
+	private void rebuild(int capacity, long oldest, Unit unit)
+	{
+		long oldKeys[] = keys;
+		Unit oldOwners[] = owners;
+
+		keys = new long[capacity];
+		owners = new Unit[capacity];
+		size = 0;
+
+		for (int i = 0; i < capacity; i++)
+			keys[i] = EMPTY;
+
+		for (int i = 0; i < oldKeys.length; i++)
+		{
+			if (oldKeys[i] == EMPTY || oldOwners[i] == unit)
+				continue;
+			if (oldKeys[i] / (PathGrid.CELLS*PathGrid.CELLS) < oldest)
+				continue;
+
+			int j = find(oldKeys[i]);
+			keys[j] = oldKeys[i];
+			owners[j] = oldOwners[i];
+			size++;
+		}
+	}
+
+	// find()
+	// returns the index holding the key, or the empty index it would go in
+	private int find(long key)
+	{
+		int mask = keys.length - 1;
+		int i = (int)((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+
+		while (keys[i] != EMPTY && keys[i] != key)
+			i = (i + 1) & mask;
+
+		return i;
+	}
+
+	// getKey()
+	// returns the table key for a cell during a slot
+	private long getKey(int cell, long slot)
+	{
+		return slot*PathGrid.CELLS*PathGrid.CELLS + cell;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	// returns the number of reservations held
+	public int getSize()
+	{
+		return size;
+	}
+}
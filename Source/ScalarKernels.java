@@ -0,0 +1,45 @@
+/*
+ * Name of code: ScalarKernels.java
+ * Description:  UnitKernels one point at a time, for JVMs VectorKernels can't be loaded
+ *				 on.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class ScalarKernels implements UnitKernels
+{
+	// distances()
+	// Puts the squared distance from x,y to each of the first count points in out
+	public void distances(double xs[], double ys[], int count, double x, double y, double out[])
+	{
+		for (int i = 0; i < count; i++)
+		{
+			double dx = xs[i] - x;
+			double dy = ys[i] - y;
+			out[i] = dx*dx + dy*dy;
+		}
+	}
+
+	// findNearest()
+	// Returns the index of the point closest to x,y whose squared distance is at least 1
+	// and less than limit, or -1 if there isn't one.  Ties go to the lowest index.
+	public int findNearest(double xs[], double ys[], int count, double x, double y, double limit)
+	{
+		int closest = -1;
+
+		for (int i = 0; i < count; i++)
+		{
+			double dx = xs[i] - x;
+			double dy = ys[i] - y;
+			double dist = dx*dx + dy*dy;
+
+			if (dist < limit && dist >= 1)
+			{
+				closest = i;
+				limit = dist;
+			}
+		}
+
+		return closest;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Name of code: SweepAndPruneBroadphase.java
+ * Description:  Broadphase that sorts boxes by their left edge and sweeps across them,
+ *				 only testing boxes whose x ranges overlap.  The sort order is kept between
+ *				 ticks and units move very little per tick, so the insertion sort is close
+ *				 to linear.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class SweepAndPruneBroadphase implements Broadphase
+{
+	private int order[];
+	private int orderCount;
+
+	// SweepAndPruneBroadphase() - class constructor
+	public SweepAndPruneBroadphase()
+	{
+		order = new int[64];
+		orderCount = 0;
+	}
+
+	// findPairs()
+	// See Broadphase
+	public void findPairs(double left[], double top[], double right[], double bottom[], int count, PairList pairs)
+	{
+		// the same boxes are usually passed in every tick - only start over if the
+		// number of boxes changed
+		if (count != orderCount)
+		{
+			if (order.length < count)
+				order = new int[count*2];
+
+			for (int i = 0; i < count; i++)
+				order[i] = i;
+
+			orderCount = count;
+		}
+
+		// insertion sort on the left edge
+		for (int i = 1; i < count; i++)
+		{
+			int box = order[i];
+			int j = i - 1;
+
+			while (j >= 0 && left[order[j]] > left[box])
+			{
+				order[j + 1] = order[j];
+				j--;
+			}
+
+			order[j + 1] = box;
+		}
+
+		// sweep - every box that starts before box i ends is a candidate
+		for (int a = 0; a < count; a++)
+		{
+			int i = order[a];
+
+			for (int b = a + 1; b < count; b++)
+			{
+				int j = order[b];
+
+				if (left[j] >= right[i])
+					break;
+
+				if (top[i] >= bottom[j] || top[j] >= bottom[i])
+					continue;
+
+				if (i < j)
+					pairs.add(i, j);
+				else
+					pairs.add(j, i);
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Name of code: TerrainCache.java
+ * Description:  Pre-drawn copy of the static world - the backdrop and every map object -
+ *				 cut into square chunks.  The chunks are drawn once when the level loads,
+ *				 as images compatible with the screen so they can be kept in video memory,
+ *				 and each frame only the chunks under the camera are drawn.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.awt.*;
+import java.awt.image.*;
+import com.golden.gamedev.object.*;
+
+public class TerrainCache
+{
+	// constants
+	// chunks the size of the view mean 2 to 4 of them cover the screen
+	public static final int CHUNK_SIZE = 1024;
+	public static final int CHUNKS = Map.SIZE / CHUNK_SIZE;
+
+	private BufferedImage chunks[][];
+	private BufferedImageOp op;
+
+	// TerrainCache() - class constructor
+	// Draws the backdrop and the map's objects into the chunks
+	public TerrainCache(Map map, BufferedImage backdrop)
+	{
+		GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		ObjectIndex index = map.getObjectIndex();
+		int found[] = new int[index.getNumObjects()];
+
+		chunks = new BufferedImage[CHUNKS][CHUNKS];
+
+		for (int cx = 0; cx < CHUNKS; cx++)
+		{
+			for (int cy = 0; cy < CHUNKS; cy++)
+			{
+				int chunkX = cx*CHUNK_SIZE;
+				int chunkY = cy*CHUNK_SIZE;
+
+				// the backdrop covers everything, so the chunks don't need transparency
+				chunks[cx][cy] = config.createCompatibleImage(CHUNK_SIZE, CHUNK_SIZE, Transparency.OPAQUE);
+				Graphics2D g = chunks[cx][cy].createGraphics();
+
+				for (int x = 0; x < Map.SIZE; x += backdrop.getWidth())
+					for (int y = 0; y < Map.SIZE; y += backdrop.getHeight())
+						g.drawImage(backdrop, op, x - chunkX, y - chunkY);
+
+				// objects crossing the edge of the chunk are drawn in every chunk they touch
+				int count = index.query(chunkX, chunkY, CHUNK_SIZE, CHUNK_SIZE, found);
+				for (int i = 0; i < count; i++)
+				{
+					Sprite object = map.getObject(found[i]);
+					object.render(g, (int)object.getX() - chunkX, (int)object.getY() - chunkY);
+				}
+
+				g.dispose();
+			}
+		}
+	}
+
+	// render()
+	// Draws the chunks that overlap the view
+	public void render(Graphics2D g, Point camera)
+	{
+		int minX = Math.max(camera.x / CHUNK_SIZE, 0);
+		int minY = Math.max(camera.y / CHUNK_SIZE, 0);
+		int maxX = Math.min((camera.x + Map.VIEW_WIDTH - 1) / CHUNK_SIZE, CHUNKS - 1);
+		int maxY = Math.min((camera.y + Map.VIEW_HEIGHT - 1) / CHUNK_SIZE, CHUNKS - 1);
+
+		for (int cx = minX; cx <= maxX; cx++)
+			for (int cy = minY; cy <= maxY; cy++)
+				g.drawImage(chunks[cx][cy], op, cx*CHUNK_SIZE - camera.x, cy*CHUNK_SIZE - camera.y);
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Name of code: TerrainCost.java
+ * Description:  Movement cost of the ground across a map.  Roads are cheap to cross and
+ *				 everything else costs the same, so units move faster along roads and the
+ *				 path planners send them that way when it saves time.  Costs are kept in a
+ *				 byte per CELL_SIZE square of the map, worked out once when the map loads,
+ *				 and a unit pays the cost of the ground under the middle of its sprite.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public class TerrainCost
+{
+	// constants
+	public static final int CELL_SIZE = 24;
+	public static final int CELLS = Map.SIZE / CELL_SIZE;
+
+	// costs - a unit's speed is scaled by PLAIN / cost
+	public static final int PLAIN = 10;
+	public static final int ROAD = 8;
+
+	// the cheapest ground there is, for estimates that mustn't overestimate
+	public static final int CHEAPEST = ROAD;
+
+	private byte costs[];
+
+	// TerrainCost() - class constructor
+	// Marks the squares whose middles are on a road
+	public TerrainCost(ObjectIndex index)
+	{
+		costs = new byte[CELLS*CELLS];
+
+		for (int c = 0; c < CELLS*CELLS; c++)
+			costs[c] = PLAIN;
+
+		for (int i = 0; i < index.getNumObjects(); i++)
+		{
+			int type = index.getType(i);
+			if (type != Map.PATH_NORTH && type != Map.PATH_EAST)
+				continue;
+
+			// squares from the first whose middle is on the road up to the first past it
+			int left = Math.max(0, (index.getLeft(i) + CELL_SIZE/2 - 1) / CELL_SIZE);
+			int right = Math.min(CELLS, (index.getRight(i) + CELL_SIZE/2 - 1) / CELL_SIZE);
+			int top = Math.max(0, (index.getTop(i) + CELL_SIZE/2 - 1) / CELL_SIZE);
+			int bottom = Math.min(CELLS, (index.getBottom(i) + CELL_SIZE/2 - 1) / CELL_SIZE);
+
+			for (int cy = top; cy < bottom; cy++)
+				for (int cx = left; cx < right; cx++)
+					costs[cy*CELLS + cx] = ROAD;
+		}
+	}
+
+	// getCost()
+	// returns the cost of the ground at the map position x,y
+	public int getCost(double x, double y)
+	{
+		int cx = (int)Math.floor(x / CELL_SIZE);
+		int cy = (int)Math.floor(y / CELL_SIZE);
+
+		if (cx < 0 || cx >= CELLS || cy < 0 || cy >= CELLS)
+			return PLAIN;
+
+		return costs[cy*CELLS + cx];
+	}
+
+	// getUnitCost()
+	// returns the cost of the ground under a unit at x,y (its sprite's top left corner)
+	public int getUnitCost(double x, double y)
+	{
+		return getCost(x + Unit.SIZE/2, y + Unit.SIZE/2);
+	}
+
+	// getSpeedFactor()
+	// returns how much faster than on open ground a unit at x,y moves
+	public double getSpeedFactor(double x, double y)
+	{
+		return PLAIN / (double)getUnitCost(x, y);
+	}
+
+	// isEdge()
+	// returns true if the cost changes at the line x (or y if vertical is false) between
+	// squares, anywhere along it
+	public boolean isEdge(int line, boolean vertical)
+	{
+		if (line <= 0 || line >= CELLS)
+			return false;
+
+		for (int i = 0; i < CELLS; i++)
+		{
+			int before = vertical ? i*CELLS + line - 1 : (line - 1)*CELLS + i;
+			int after = vertical ? i*CELLS + line : line*CELLS + i;
+
+			if (costs[before] != costs[after])
+				return true;
+		}
+
+		return false;
+	}
+}
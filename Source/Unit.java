@@ -8,6 +8,7 @@
 import com.golden.gamedev.object.*;
 import java.awt.Graphics2D;
 import java.awt.image.*;
+import java.util.concurrent.Future;
 import java.awt.Point;
 
 public class Unit
@@ -28,6 +29,26 @@ public class Unit
 	public static final int SIZE = 96;
 	public static final int SIGHT_RADIUS = 350;
 	
+	// how many cells ahead a unit looks along a flow field for a straight walk
+	public static final int FLOW_LOOKAHEAD = 8;
+	
+	// how close a unit has to get to a waypoint to count as there, as avoiding other
+	// units can keep it from landing on the exact pixel
+	public static final int ARRIVE_DISTANCE = 4;
+	
+	// a unit held up this close to its destination by other units for CROWD_TICKS stops
+	// where it is
+	public static final int CROWD_DISTANCE = 96;
+	public static final int CROWD_TICKS = 15;
+	
+	// a unit held up on the last stretch for GIVE_UP_TICKS stops wherever it is, as its
+	// destination must be out of reach (inside an obstacle)
+	public static final int GIVE_UP_TICKS = 90;
+	
+	// a moving unit held up anywhere for SQUEEZE_TICKS squeezes through the other units
+	// for as long, the way a crowd lets somebody through
+	public static final int SQUEEZE_TICKS = 30;
+	
 	// unit states
 	public static final int STOP = 0;
 	public static final int MOVE = 1;
@@ -56,219 +77,135 @@ public class Unit
 	private BufferedImage selectionCircle;
 	private GamePlay gamePlay;
 	
+	// the unit's entity, which holds its position, movement, health, combat, order state
+	// and special ability components
+	private EntityStore entities;
+	private int id;
+	
 	private Projectile specialAttack;
 	private Projectile projectile;
 	private Unit target;
 	private Point destination;
+	private Point waypoint;
+	private int route[];
+	private int routeIndex;
+	private long schedule[];
+	private int leg[];
+	private int legIndex;
+	private int corners[];
+	private int cornerIndex;
+	private Point legEnd;
+	private FlowField flowField;
+	private FlowField originalField;
+	private Future<int[]> pendingRoute;
+	private boolean pendingOnMesh;
+	private Point pendingDest;
+	private long pendingTick;
 	private Point originalDest;
 	private Point attackDest;
-	private int state;
 	private int direction;
 	private boolean selected;
-	private boolean swinging;
-	private boolean alive;
 	private boolean pathing;
-	private boolean dontPath;
-	private int previousState;
-	private int delay;
 	private boolean isAttackMove;
 	private boolean isStandGround;
-	private int specialType;
-	private int specialCooldown;
-	
-	// attributes
-	private int type;
-	private int maxHp;
-	private int currentHp;
-	private int attackRange;
-	private int attackDelay;
-	private int armor;
-	private int power;
-	private String range;
-	private double speed;
-	private boolean hasProjectile;
-	private boolean isFriendly;
+	private int gridCell;
+	private int fogCell;
+	
+	// attributes, shared by every unit of the type
+	private UnitType type;
 	
 	// Unit() - class constructor
-	// initializes data and attributes based on the type parameter
-	public Unit(GamePlay parent, int id, int unitType)
+	// Makes what the unit keeps for as long as it exists - its sprite, points and
+	// projectiles - then puts it in the game (see init()).  Stats that can change while
+	// the game plays are copied into the entity, and everything else is read from the
+	// shared UnitType.
+	public Unit(GamePlay parent, int unitType)
+	{
+		type = UnitType.get(unitType);
+		
+		destination = new Point();
+		waypoint = new Point();
+		legEnd = new Point();
+		pendingDest = new Point();
+		originalDest = new Point();
+		attackDest = new Point();
+		sprite = new AnimatedSprite();
+		sprite.setAnimationTimer(new Timer(UnitType.FRAME_TIME));
+		sprite.setImages(type.getImages(parent));
+		
+		if (type.getSpecial() != NONE)
+			specialAttack = new Projectile(this, type.getSpecialProjectile(), parent);
+		if (type.getProjectile() != NONE)
+			projectile = new Projectile(this, type.getProjectile(), parent);
+		
+		init(parent);
+	}
+	
+	// init()
+	// Puts the unit in a game as if it had just been made - a new entity in the game's
+	// entity store, full health and no orders.  Called by the constructor, and by
+	// UnitPool when a unit from an earlier game is used again.
+	public void init(GamePlay parent)
 	{
+		gamePlay = parent;
+		entities = parent.getEntities();
+		id = entities.create(this);
+		
 		direction = SOUTH;
 		selected = false;
 		target = null;
-		swinging = false;
-		alive = true;
+		entities.swinging[id] = false;
+		entities.alive[id] = true;
 		pathing = false;
-		gamePlay = parent;
-		delay = 0;
-		previousState = -1;
-		type = unitType;
-		dontPath = false;
+		entities.delay[id] = 0;
+		entities.previousState[id] = -1;
 		isAttackMove = false;
 		isStandGround = false;
-		specialType = NONE;
+		gridCell = -1;
+		fogCell = -1;
 		
-		destination = new Point();
-		originalDest = new Point();
-		attackDest = new Point();
+		destination.setLocation(0, 0);
+		waypoint.setLocation(0, 0);
+		route = Pathfinder.NO_ROUTE;
+		routeIndex = 0;
+		schedule = null;
+		leg = Pathfinder.NO_ROUTE;
+		legIndex = 0;
+		corners = NavMesh.NO_PATH;
+		cornerIndex = 0;
+		legEnd.setLocation(0, 0);
+		flowField = null;
+		originalField = null;
+		pendingRoute = null;
+		pendingOnMesh = false;
+		pendingDest.setLocation(0, 0);
+		pendingTick = 0;
+		originalDest.setLocation(0, 0);
+		attackDest.setLocation(0, 0);
 		selectionCircle = parent.getImage("Graphics/Misc/selectionCircle.png");
-		sprite = new AnimatedSprite();
 		sprite.setLoopAnim(true);
 		sprite.setAnimate(true);
-		sprite.setAnimationTimer(new Timer(100));
 		sprite.setID(id);
 		
-		// attributes are based on type
-		if (type == KNIGHT)
-		{
-			sprite.setImages(parent.getImages("Graphics/Units/knight.png", 43, 8));
-			maxHp = 240;
-			speed = 0.1;
-			attackRange = 40;
-			attackDelay = 80;
-			hasProjectile = false;
-			power = 20;
-			armor = 10;
-			isFriendly = true;
-			range = "Melee";
-		}
-		
-		else if (type == WIZARD)
-		{
-			specialAttack = new Projectile(this, Projectile.LIGHTNING, parent);
-			projectile = new Projectile(this, Projectile.FIREBALL, parent);
-			sprite.setImages(parent.getImages("Graphics/Units/wizard.png", 43, 8));
-			maxHp = 95;
-			speed = 0.1;
-			attackRange = 185;
-			attackDelay = 95;
-			hasProjectile = true;
-			power = 45;
-			armor = 2;
-			isFriendly = true;
-			specialType = LIGHTNING;
-			range = "Medium";
-		}
-		
-		else if (type == CLERIC)
-		{
-			specialAttack = new Projectile(this, Projectile.HEAL, parent);
-			sprite.setImages(parent.getImages("Graphics/Units/cleric.png", 43, 8));
-			maxHp = 70;
-			speed = 0.1;
-			attackRange = 40;
-			attackDelay = 80;
-			hasProjectile = false;
-			power = 10;
-			armor = 3;
-			isFriendly = true;
-			specialType = HEAL;
-			range = "Melee";
-		}
-		
-		else if (type == ARCHER)
-		{
-			projectile = new Projectile(this, Projectile.ARROW, parent);
-			sprite.setImages(parent.getImages("Graphics/Units/archer.png", 43, 8));
-			maxHp = 125;
-			speed = 0.1;
-			attackRange = 270;
-			attackDelay = 65;
-			hasProjectile = true;
-			power = 15;
-			armor = 2;
-			isFriendly = true;
-			range = "Long";
-		}
-		
-		if (type == NINJA)
-		{
-			sprite.setImages(parent.getImages("Graphics/Units/ninja.png", 43, 8));
-			maxHp = 170;
-			speed = 0.1;
-			attackRange = 40;
-			attackDelay = 50;
-			hasProjectile = false;
-			power = 20;
-			armor = 4;
-			isFriendly = true;
-			range = "Melee";
-		}
-		
-		else if (type == SKELETON)
-		{
-			sprite.setImages(parent.getImages("Graphics/Units/skeleton.png", 43, 8));
-			maxHp = 185;
-			speed = 0.1;
-			attackRange = 40;
-			attackDelay = 80;
-			hasProjectile = false;
-			power = 25;
-			armor = 8;
-			isFriendly = false;
-		}
-		
-		else if (type == SKELETON_ARCHER)
-		{
-			projectile = new Projectile(this, Projectile.ARROW, parent);
-			sprite.setImages(parent.getImages("Graphics/Units/skeletonArcher.png", 43, 8));
-			maxHp = 145;
-			speed = 0.1;
-			attackRange = 300;
-			attackDelay = 65;
-			hasProjectile = true;
-			power = 13;
-			armor = 2;
-			isFriendly = false;
-		}
-		
-		if (type == ORC)
-		{
-			sprite.setImages(parent.getImages("Graphics/Units/orc.png", 43, 8));
-			maxHp = 340;
-			speed = 0.1;
-			attackRange = 40;
-			attackDelay = 80;
-			hasProjectile = false;
-			power = 5;
-			armor = 6;
-			isFriendly = false;
-		}
-		
-		if (type == PIRATE)
-		{
-			sprite.setImages(parent.getImages("Graphics/Units/pirate.png", 43, 8));
-			maxHp = 200;
-			speed = 0.1;
-			attackRange = 40;
-			attackDelay = 70;
-			hasProjectile = false;
-			power = 18;
-			armor = 8;
-			isFriendly = false;
-		}
+		entities.maxHp[id] = type.getMaxHp();
+		entities.attackDelay[id] = type.getAttackDelay();
+		entities.power[id] = type.getPower();
+		entities.friendly[id] = type.isFriendly();
+		entities.specialType[id] = type.getSpecial();
 		
-		if (type == COMMANDER)
-		{
-			sprite.setImages(parent.getImages("Graphics/Units/commander.png", 43, 8));
-			maxHp = 1840;
-			speed = 0.1;
-			attackRange = 40;
-			attackDelay = 120;
-			hasProjectile = false;
-			power = 85;
-			armor = 36;
-			isFriendly = false;
-		}
+		if (specialAttack != null)
+			specialAttack.init(parent);
+		if (projectile != null)
+			projectile.init(parent);
 		
 		// higher difficulty level gives enemies higher hp
 		// 15% for medium, 30% for hard
-		if (isFriendly == false && gamePlay.getDifficulty() == GamePlay.NORMAL)
-			maxHp += maxHp*.15;
-		if (isFriendly == false && gamePlay.getDifficulty() == GamePlay.HARD)
-			maxHp += maxHp*.3;
+		if (entities.friendly[id] == false && gamePlay.getDifficulty() == GamePlay.NORMAL)
+			entities.maxHp[id] += entities.maxHp[id]*.15;
+		if (entities.friendly[id] == false && gamePlay.getDifficulty() == GamePlay.HARD)
+			entities.maxHp[id] += entities.maxHp[id]*.3;
 		
-		currentHp = maxHp;
+		entities.hp[id] = entities.maxHp[id];
 		stop();
 	}
 	
@@ -276,55 +213,37 @@ public class Unit
 	// updates movement and animation based on the current state of the unit
 	public void update(long elapsedTime)
 	{
+		// units only move if their state below steers them somewhere
+		entities.steering[id] = false;
+		entities.preferredX[id] = 0;
+		entities.preferredY[id] = 0;
+		
 		// boundary check
 		if (elapsedTime > 100)
 		{
-			if (sprite.getX() < 0)
-				sprite.setX(0);
-			if (sprite.getY() < 0)
-				sprite.setY(0);
-			if (sprite.getX() > (Map.SIZE - SIZE))
-				sprite.setX(Map.SIZE - SIZE);
-			if (sprite.getY() > (Map.SIZE - SIZE));
-				sprite.setY(Map.SIZE - SIZE);
+			if (getX() < 0)
+				setPosition(0, getY());
+			if (getY() < 0)
+				setPosition(getX(), 0);
+			if (getX() > (Map.SIZE - SIZE))
+				setPosition(Map.SIZE - SIZE, getY());
+			if (getY() > (Map.SIZE - SIZE));
+				setPosition(getX(), Map.SIZE - SIZE);
 		}
 		
-		switch (state)
+		switch (entities.state[id])
 		{
 			case MOVE:
-				// reset the dontPath flag - we always want to path when moving
-				if (dontPath)
-					dontPath = false;
-				
 				// if the unit is attack-moving then check for nearby enemies
 				if (isAttackMove && !pathing)
 					if (attackProximityEnemy())
 						break;
 				
-				// continue toward the destination
-				if (sprite.moveTo(elapsedTime, destination.x, destination.y, speed))
-				{
-					// if our destination is a waypoint (we're pathing) then continue the
-					// previous action once the pathing is complete
-					if (pathing)
-					{
-						pathing = false;
-						state = previousState;
-						if (state == MOVE) move(originalDest.x, originalDest.y);
-						if (state == ATTACK) attack(target);
-					}
-					
-					// otherwise we've reached our goal and can stop
-					else
-					{
-						stop();
-						
-						// we're done attack-moving in this case
-						if (isAttackMove)
-							if (destination.x == attackDest.x && destination.y == attackDest.y)
-								isAttackMove = false;
-					}
-				}
+				// continue along the route, then on to the destination
+				if (reached(waypoint.x, waypoint.y) || isCrowdedOut())
+					arrive();
+				if (entities.state[id] == MOVE)
+					steer(elapsedTime, waypoint.x, waypoint.y);
 			break;
 				
 			case ATTACK:
@@ -335,21 +254,14 @@ public class Unit
 					break;
 				}
 				
-				// refuse to path (move out of the way for other units) if the unit is in range
-				// of its target
-				if (distanceFromTarget(target) <= attackRange + 64)
-					dontPath = true;
-				else
-					dontPath = false;
-				
 				// attack is in progress
-				if (swinging)
+				if (entities.swinging[id])
 				{
-					// wait for the last frame of attack animation
-					if (sprite.getFrame() == direction*43 + 29)
+					// wait for the attack animation to finish
+					if (entities.swingTime[id] >= type.getSwingTime())
 					{
 						// spawn a projectile if necessary, otherwise just do damage
-						if (hasProjectile)
+						if (projectile != null)
 							projectile.spawn(target, direction);
 						else
 						{
@@ -360,8 +272,8 @@ public class Unit
 						// dont move if the unit is standing ground
 						if (!isStandGround)
 						{
-							move((int)target.sprite.getX(), (int)target.sprite.getY());
-							state = ATTACK;
+							moveDirect((int)target.getX(), (int)target.getY());
+							entities.state[id] = ATTACK;
 						}
 						else
 							stop();
@@ -369,23 +281,24 @@ public class Unit
 				}
 				
 				// attack is just starting
-				if (!swinging)
+				if (!entities.swinging[id])
 				{
 					// check if the target is in range
-					if (distanceFromTarget(target) <= attackRange + 64)
+					if (distanceFromTarget(target) <= type.getAttackRange() + 64)
 					{
 						// Hold next attack until delay finishes
-						if (delay < attackDelay)
+						if (entities.delay[id] < entities.attackDelay[id])
 						{
-							sprite.setAnimationFrame(direction*43 + 17, direction*43 + 17);
+							sprite.setAnimationFrame(type.getFirstFrame(UnitType.ATTACK, direction), type.getFirstFrame(UnitType.ATTACK, direction));
 						}
 						
 						// start swinging at the enemy
 						else
 						{
-							delay = 0;
-							sprite.setAnimationFrame(direction*43 + 17, direction*43 + 29);
-							swinging = true;
+							entities.delay[id] = 0;
+							sprite.setAnimationFrame(type.getFirstFrame(UnitType.ATTACK, direction), type.getLastFrame(UnitType.ATTACK, direction));
+							entities.swinging[id] = true;
+							entities.swingTime[id] = 0;
 						}
 					}
 					
@@ -394,7 +307,7 @@ public class Unit
 					{
 						// unless the unit is standing ground
 						if (!isStandGround)
-							sprite.moveTo(elapsedTime, target.sprite.getX(), target.sprite.getY(), speed);
+							steer(elapsedTime, target.getX(), target.getY());
 						else
 							stop();
 					}
@@ -420,32 +333,28 @@ public class Unit
 					break;
 				}
 				
-				if (distanceFromTarget(target) <= 200)
-					dontPath = true;
-				else
-					dontPath = false;
-				
-				if (swinging)
+				if (entities.swinging[id])
 				{
-					if (sprite.getFrame() == direction*43 + 29)
+					if (entities.swingTime[id] >= type.getSwingTime())
 					{
 						specialAttack.spawn(target, direction);
 						stop();
 					}
 				}
 			
-				else if (!swinging)
+				else if (!entities.swinging[id])
 				{
 					if (distanceFromTarget(target) <= 200)
 					{
-						specialCooldown = 450;
-						sprite.setAnimationFrame(direction*43 + 17, direction*43 + 29);
-						swinging = true;
+						entities.specialCooldown[id] = 450;
+						sprite.setAnimationFrame(type.getFirstFrame(UnitType.ATTACK, direction), type.getLastFrame(UnitType.ATTACK, direction));
+						entities.swinging[id] = true;
+						entities.swingTime[id] = 0;
 					}
 					else
 					{
 						if (!isStandGround)
-							sprite.moveTo(elapsedTime, target.sprite.getX(), target.sprite.getY(), speed);
+							steer(elapsedTime, target.getX(), target.getY());
 						else
 							stop();
 					}
@@ -454,30 +363,146 @@ public class Unit
 		}
 		
 		// if the unit is dead, hold it's animation frame
-		if (sprite.getFrame() == direction*43 + 42)
-			sprite.setAnimationFrame(direction*43 + 42, direction*43 + 42);
+		if (sprite.getFrame() == type.getLastFrame(UnitType.DEATH, direction))
+			sprite.setAnimationFrame(type.getLastFrame(UnitType.DEATH, direction), type.getLastFrame(UnitType.DEATH, direction));
 		
-		// update special ability cooldown and attack delay
-		if (specialCooldown > 0)
-			specialCooldown--;
-		if (delay < attackDelay)
-			delay++;
+		// special ability cooldown and attack delay are counted by
+		// EntityStore.updateTimers() once every unit has acted
 		
 		// sprite update routines
 		sprite.update(elapsedTime);
 		
-		if (hasProjectile)
+		if (projectile != null)
 			projectile.update(elapsedTime);
-		if (specialType != NONE)
+		if (entities.specialType[id] != NONE)
 			specialAttack.update(elapsedTime);
 	}
 	
+	// arrive()
+	// Called when the unit reaches its waypoint while moving.  Carries on along the route
+	// or field, goes back to what it was doing before pathing around an obstacle, or stops
+	// at the destination.
+	private void arrive()
+	{
+		// keep heading for the destination while the route is on its way
+		if (pendingRoute != null)
+			return;
+		
+		if (flowField != null)
+		{
+			followField();
+			return;
+		}
+		
+		if (cornerIndex < corners.length)
+		{
+			nextCorner();
+			return;
+		}
+		
+		if (legIndex < leg.length || routeIndex < route.length)
+		{
+			// a cooperative route may have the unit wait its turn before going on
+			if (legIndex == leg.length && schedule != null && gamePlay.getTick() < schedule[routeIndex])
+				return;
+			
+			nextWaypoint();
+			return;
+		}
+		
+		// if our destination is a waypoint (we're pathing) then continue the
+		// previous action once the pathing is complete
+		if (pathing)
+		{
+			pathing = false;
+			entities.state[id] = entities.previousState[id];
+			if (entities.state[id] == MOVE) move(originalDest.x, originalDest.y, originalField);
+			if (entities.state[id] == ATTACK) attack(target);
+		}
+		
+		// otherwise we've reached our goal and can stop
+		else
+		{
+			stop();
+			
+			// we're done attack-moving in this case
+			if (isAttackMove)
+				if (destination.x == attackDest.x && destination.y == attackDest.y)
+					isAttackMove = false;
+		}
+	}
+	
+	// reached()
+	// returns true if the unit is within ARRIVE_DISTANCE of x,y
+	private boolean reached(int x, int y)
+	{
+		double dx = x - getX();
+		double dy = y - getY();
+		
+		return dx*dx + dy*dy <= ARRIVE_DISTANCE*ARRIVE_DISTANCE;
+	}
+	
+	// isCrowdedOut()
+	// returns true if the unit is on the last stretch to its destination and has been all
+	// but stopped for a while close to it - somebody else is already standing there - or
+	// for long enough to give up
+	private boolean isCrowdedOut()
+	{
+		if (pendingRoute != null || flowField != null || cornerIndex < corners.length ||
+			legIndex < leg.length || routeIndex < route.length)
+			return false;
+		
+		double dx = waypoint.x - getX();
+		double dy = waypoint.y - getY();
+		
+		return (entities.blockedTicks[id] >= CROWD_TICKS && dx*dx + dy*dy < CROWD_DISTANCE*CROWD_DISTANCE) ||
+			   entities.blockedTicks[id] >= GIVE_UP_TICKS;
+	}
+	
+	// steer()
+	// Sets the velocity the unit would like this tick - straight toward x,y at full speed
+	// for the ground it's on, without overshooting.  LocalAvoidance then picks the actual
+	// velocity.
+	private void steer(long elapsedTime, double x, double y)
+	{
+		double dx = x - getX();
+		double dy = y - getY();
+		double distance = Math.sqrt(dx*dx + dy*dy);
+		
+		entities.steering[id] = true;
+		entities.maxStep[id] = type.getSpeed()*elapsedTime*gamePlay.getMap().getTerrainCost().getSpeedFactor(getX(), getY());
+		
+		if (distance > entities.maxStep[id])
+		{
+			entities.preferredX[id] = dx / distance * entities.maxStep[id];
+			entities.preferredY[id] = dy / distance * entities.maxStep[id];
+		}
+		else
+		{
+			entities.preferredX[id] = dx;
+			entities.preferredY[id] = dy;
+		}
+	}
+	
+	// saveProjectilePositions()
+	// remembers where the unit's projectiles are at the start of a tick so rendering can
+	// blend between the previous and current tick.  The unit's own position is saved by
+	// EntityStore.savePositions().
+	public void saveProjectilePositions()
+	{
+		if (projectile != null)
+			projectile.savePosition();
+		if (entities.specialType[id] != NONE)
+			specialAttack.savePosition();
+	}
+	
 	// render()
-	// draws the unit on the screen
-	public void render(Graphics2D g, Point camera)
+	// draws the unit on the screen.  alpha is how far the frame is between the previous
+	// tick (0) and the current tick (1).
+	public void render(Graphics2D g, Point camera, double alpha)
 	{
-		int x = (int)sprite.getX() - camera.x;
-		int y = (int)sprite.getY() - camera.y;
+		int x = getRenderX(alpha) - camera.x;
+		int y = getRenderY(alpha) - camera.y;
 		
 		// selected units appear with a green selection circle underneath them
 		if (selected)
@@ -486,27 +511,308 @@ public class Unit
 		sprite.render(g, x, y);	
 		
 		// draw any projectiles or special abilities
-		if (hasProjectile)
-			projectile.render(g, camera);
-		if (specialType != NONE)
-			specialAttack.render(g, camera);
+		if (projectile != null)
+			projectile.render(g, camera, alpha);
+		if (entities.specialType[id] != NONE)
+			specialAttack.render(g, camera, alpha);
+	}
+	
+	// getRenderX()
+	// returns the x coordinate the unit is drawn at for the given alpha (see render())
+	public int getRenderX(double alpha)
+	{
+		return (int)(entities.previousX[id] + (getX() - entities.previousX[id])*alpha);
+	}
+	
+	// getRenderY()
+	// returns the y coordinate the unit is drawn at for the given alpha (see render())
+	public int getRenderY(double alpha)
+	{
+		return (int)(entities.previousY[id] + (getY() - entities.previousY[id])*alpha);
 	}
 	
 	// move()
-	// Starts moving to the specified location
+	// Starts moving to the specified location, planning a route around any obstacles in
+	// the way
 	public void move(int destX, int destY)
+	{
+		move(destX, destY, null);
+	}
+	
+	// move()
+	// Starts moving to the specified location as part of a group following the flow field.
+	// The unit plans its own route if the field is null or doesn't reach it, by asking the
+	// path service for a path over the navigation mesh (or a grid route if the game routes
+	// on the grid), which arrives on the next tick.
+	public void move(int destX, int destY, FlowField field)
 	{
 		if (isStandGround)
 			return;
 		
-		state = MOVE;
+		pendingRoute = null;
+		
+		PathService service = gamePlay.getPathService();
+		boolean onField = field != null && field.reaches(field.getGrid().getCell(getX(), getY()));
+		
+		if (service != null && !onField)
+		{
+			boolean onMesh = gamePlay.getNavMesh() != null;
+			Future<int[]> request;
+			if (onMesh)
+				request = service.requestOnMesh((int)getX(), (int)getY(), destX, destY);
+			else
+				request = service.request((int)getX(), (int)getY(), destX, destY);
+			
+			// set off straight at the destination until the route arrives
+			if (!request.isDone())
+			{
+				startMove(destX, destY, null, Pathfinder.NO_ROUTE);
+				pendingRoute = request;
+				pendingOnMesh = onMesh;
+				pendingDest.x = destX;
+				pendingDest.y = destY;
+				pendingTick = gamePlay.getTick();
+				return;
+			}
+			
+			startMove(destX, destY, null, PathService.getRoute(request));
+			return;
+		}
+		
+		startMove(destX, destY, field, null);
+	}
+	
+	// moveScheduled()
+	// Starts moving to the specified location along a route from CooperativePlanner,
+	// setting off for each cell of the route no sooner than its tick in the schedule
+	public void moveScheduled(int destX, int destY, int plannedRoute[], long plannedSchedule[])
+	{
+		if (isStandGround)
+			return;
+		
+		pendingRoute = null;
+		startMove(destX, destY, null, Pathfinder.NO_ROUTE);
+		
+		// wait where the unit is until its turn to set off
+		if (plannedRoute.length > 0)
+		{
+			route = plannedRoute;
+			schedule = plannedSchedule;
+			headTo((int)getX(), (int)getY());
+		}
+	}
+	
+	// moveDirect()
+	// Starts moving straight at the specified location without planning a route.  Used
+	// when closing in on a target, which is done in a straight line anyway.
+	private void moveDirect(int destX, int destY)
+	{
+		if (isStandGround)
+			return;
+		
+		pendingRoute = null;
+		startMove(destX, destY, null, Pathfinder.NO_ROUTE);
+	}
+	
+	// deliverRoute()
+	// Called at the start of each tick.  Starts the unit along a route it asked for on an
+	// earlier tick, waiting for the search to finish if it has to.
+	public void deliverRoute(long tick)
+	{
+		if (pendingRoute == null || pendingTick >= tick)
+			return;
+		
+		int delivered[] = PathService.getRoute(pendingRoute);
+		pendingRoute = null;
+		
+		if (!entities.alive[id])
+			return;
+		
+		if (pendingOnMesh)
+		{
+			startMove(pendingDest.x, pendingDest.y, null, Pathfinder.NO_ROUTE);
+			followCorners(delivered);
+		}
+		else
+			startMove(pendingDest.x, pendingDest.y, null, delivered);
+	}
+	
+	// startMove()
+	// Switches to moving toward the destination along the flow field or the route given.
+	// With neither, the unit plans its own route on the spot.
+	private void startMove(int destX, int destY, FlowField field, int plannedRoute[])
+	{
+		entities.state[id] = MOVE;
 		destination.x = destX;
 		destination.y = destY;
-		swinging = false;
+		entities.swinging[id] = false;
+		
+		route = Pathfinder.NO_ROUTE;
+		routeIndex = 0;
+		schedule = null;
+		leg = Pathfinder.NO_ROUTE;
+		legIndex = 0;
+		corners = NavMesh.NO_PATH;
+		cornerIndex = 0;
+		flowField = field;
+		
+		if (flowField != null && flowField.reaches(flowField.getGrid().getCell(getX(), getY())))
+			followField();
+		else if (plannedRoute != null)
+		{
+			flowField = null;
+			route = plannedRoute;
+			
+			if (route.length > 0)
+				nextWaypoint();
+			else
+				headTo(destination.x, destination.y);
+		}
+		else
+		{
+			flowField = null;
+			planRoute();
+		}
+	}
+	
+	// planRoute()
+	// Plans the unit's own route to the destination and starts along it, over the
+	// navigation mesh if there is one and the grid if not
+	private void planRoute()
+	{
+		NavMesh navMesh = gamePlay.getNavMesh();
+		if (navMesh != null)
+		{
+			followCorners(navMesh.findPath((int)getX(), (int)getY(), destination.x, destination.y));
+			return;
+		}
+		
+		Pathfinder pathfinder = gamePlay.getPathfinder();
+		if (pathfinder != null)
+			route = pathfinder.findPath((int)getX(), (int)getY(), destination.x, destination.y);
+		else
+			route = Pathfinder.NO_ROUTE;
+		
+		routeIndex = 0;
+		leg = Pathfinder.NO_ROUTE;
+		legIndex = 0;
+		
+		if (route.length > 0)
+			nextWaypoint();
+		else
+			headTo(destination.x, destination.y);
+	}
+	
+	// followField()
+	// Heads as far along the flow field as the unit can walk in a straight line, or
+	// straight for the destination once nothing is in the way.  If the field runs out
+	// before then (the destination is inside an obstacle, or the unit got pushed off the
+	// field) the unit plans its own route instead.
+	private void followField()
+	{
+		PathGrid grid = flowField.getGrid();
+		int x = (int)getX();
+		int y = (int)getY();
+		
+		if (grid.hasLineOfSight(x, y, destination.x, destination.y))
+		{
+			flowField = null;
+			headTo(destination.x, destination.y);
+			return;
+		}
+		
+		int target = flowField.getNext(grid.getCell(x, y));
+		if (target < 0)
+		{
+			flowField = null;
+			planRoute();
+			return;
+		}
+		
+		for (int i = 1; i < FLOW_LOOKAHEAD; i++)
+		{
+			int further = flowField.getNext(target);
+			if (further < 0 || !grid.hasLineOfSight(x, y, grid.getX(further), grid.getY(further)))
+				break;
+			
+			target = further;
+		}
+		
+		headTo(grid.getX(target), grid.getY(target));
+	}
+	
+	// nextWaypoint()
+	// Heads for the next cell on the route.  The last cell is swapped for the destination
+	// itself when the destination is in it.  Long routes only give the entrances between
+	// clusters, so when the unit can't walk straight to the next cell the leg there is
+	// planned first and walked cell by cell.
+	private void nextWaypoint()
+	{
+		Pathfinder pathfinder = gamePlay.getPathfinder();
+		PathGrid grid = pathfinder.getGrid();
+		
+		if (legIndex < leg.length)
+		{
+			int cell = leg[legIndex++];
+			
+			if (legIndex == leg.length)
+				headTo(legEnd.x, legEnd.y);
+			else
+				headTo(grid.getX(cell), grid.getY(cell));
+			return;
+		}
+		
+		int cell = route[routeIndex++];
+		legEnd.x = grid.getX(cell);
+		legEnd.y = grid.getY(cell);
+		
+		if (routeIndex == route.length && cell == grid.getCell(destination.x, destination.y))
+		{
+			legEnd.x = destination.x;
+			legEnd.y = destination.y;
+		}
+		
+		leg = pathfinder.findPath((int)getX(), (int)getY(), legEnd.x, legEnd.y);
+		legIndex = 0;
+		
+		if (leg.length > 0)
+			nextWaypoint();
+		else
+			headTo(legEnd.x, legEnd.y);
+	}
+	
+	// followCorners()
+	// Starts along a path over the navigation mesh, or straight for the destination if
+	// the path is empty
+	private void followCorners(int path[])
+	{
+		corners = path;
+		cornerIndex = 0;
+		
+		if (corners.length > 0)
+			nextCorner();
+		else
+			headTo(destination.x, destination.y);
+	}
+	
+	// nextCorner()
+	// heads for the next corner of a path over the navigation mesh
+	private void nextCorner()
+	{
+		headTo(corners[cornerIndex], corners[cornerIndex + 1]);
+		cornerIndex += 2;
+	}
+	
+	// headTo()
+	// Starts walking in a straight line to the specified location
+	private void headTo(int x, int y)
+	{
+		waypoint.x = x;
+		waypoint.y = y;
 		
 		// calculate the direction the unit is going
-		int dx = destination.x - (int)sprite.getX();
-		int dy = destination.y - (int)sprite.getY();
+		int dx = waypoint.x - (int)getX();
+		int dy = waypoint.y - (int)getY();
 		
 		double ratio = (double)Math.abs(dx) / (double) Math.abs(dy);
 		
@@ -569,7 +875,7 @@ public class Unit
 		}
 		
 		// set the animation appropriately
-		sprite.setAnimationFrame(direction*43+9,direction*43+16);
+		sprite.setAnimationFrame(type.getFirstFrame(UnitType.WALK, direction), type.getLastFrame(UnitType.WALK, direction));
 	}
 	
 	// path()
@@ -580,28 +886,23 @@ public class Unit
 		if (!pathing)
 		{
 			pathing = true;
-			previousState = state;
+			entities.previousState[id] = entities.state[id];
 			originalDest.x = destination.x;
 			originalDest.y = destination.y;
+			originalField = flowField;
 		}
 		
 		move(destX, destY);
 	}
 	
-	// shouldPath()
-	// Returns true if the unit is allowed to path, false otherwise
-	public boolean shouldPath()
-	{
-		return !dontPath;
-	}
-	
 	// stop()
 	// orders the unit to stop
 	public void stop()
 	{
-		state = STOP;
-		swinging = false;
-		sprite.setAnimationFrame(direction*43, direction*43 + 8);
+		pendingRoute = null;
+		entities.state[id] = STOP;
+		entities.swinging[id] = false;
+		sprite.setAnimationFrame(type.getFirstFrame(UnitType.IDLE, direction), type.getLastFrame(UnitType.IDLE, direction));
 	}
 	
 	// standGround()
@@ -609,7 +910,7 @@ public class Unit
 	public void standGround()
 	{
 		isStandGround = true;
-		if (state == MOVE) stop();
+		if (entities.state[id] == MOVE || pendingRoute != null) stop();
 	}
 	
 	// attack()
@@ -617,19 +918,28 @@ public class Unit
 	public void attack(Unit t)
 	{
 		target = t;
-		if (!swinging)
-			move((int)target.sprite.getX(), (int)target.sprite.getY());
-		state = ATTACK;
+		pendingRoute = null;
+		if (!entities.swinging[id])
+			moveDirect((int)target.getX(), (int)target.getY());
+		entities.state[id] = ATTACK;
 	}
 	
 	// attackMove()
 	// orders the unit to attack-move to the specified location
 	public void attackMove(int destX, int destY)
+	{
+		attackMove(destX, destY, null);
+	}
+	
+	// attackMove()
+	// orders the unit to attack-move to the specified location as part of a group
+	// following the flow field
+	public void attackMove(int destX, int destY, FlowField field)
 	{
 		attackDest.x = destX;
 		attackDest.y = destY;
 		isAttackMove = true;
-		move(attackDest.x, attackDest.y);
+		move(attackDest.x, attackDest.y, field);
 	}
 	
 	// heal()
@@ -637,9 +947,9 @@ public class Unit
 	public void heal(Unit t)
 	{
 		target = t;
-		swinging = false;
-		move((int)target.sprite.getX(), (int)target.sprite.getY());
-		state = HEAL;
+		entities.swinging[id] = false;
+		moveDirect((int)target.getX(), (int)target.getY());
+		entities.state[id] = HEAL;
 	}
 	
 	// lightning()
@@ -647,9 +957,9 @@ public class Unit
 	public void lightning(Unit t)
 	{
 		target = t;
-		swinging = false;
-		move((int)target.sprite.getX(), (int)target.sprite.getY());
-		state = LIGHTNING;
+		entities.swinging[id] = false;
+		moveDirect((int)target.getX(), (int)target.getY());
+		entities.state[id] = LIGHTNING;
 	}
 	
 	// reset()
@@ -661,6 +971,28 @@ public class Unit
 		isStandGround = false;
 	}
 	
+	// setPosition()
+	// Puts the unit at x,y (its sprite's top left corner).  The unit is drawn there
+	// straight away, rather than sliding over from where it was at the start of the tick.
+	public void setPosition(double x, double y)
+	{
+		entities.x[id] = x;
+		entities.y[id] = y;
+		entities.previousX[id] = x;
+		entities.previousY[id] = y;
+		sprite.setX(x);
+		sprite.setY(y);
+		
+		// the grids keep their own copy of where units are
+		if (gridCell >= 0)
+		{
+			if (entities.friendly[id])
+				gamePlay.getFriendlyGrid().update(this);
+			else
+				gamePlay.getEnemyGrid().update(this);
+		}
+	}
+	
 	// select()
 	// flags the unit as selected
 	public void select()
@@ -679,11 +1011,11 @@ public class Unit
 	// sets the unit's current hp to the value specified
 	public void setCurrentHp(int hp)
 	{
-		currentHp = hp;
+		entities.hp[id] = hp;
 		
 		// safeguard
-		if (currentHp < 0) currentHp = 0;
-		if (currentHp > maxHp) currentHp = maxHp;
+		if (entities.hp[id] < 0) entities.hp[id] = 0;
+		if (entities.hp[id] > entities.maxHp[id]) entities.hp[id] = entities.maxHp[id];
 	}
 	
 	// reduceHp()
@@ -694,26 +1026,26 @@ public class Unit
 		// friendly units can't be damaged in god mode
 		if (gamePlay.isGodMode())
 		{
-			if (isFriendly && delta > 0)
+			if (entities.friendly[id] && delta > 0)
 				return;
 		}
 		
 		// enemy units immediately die if one-hit-kills is enabled
 		if (gamePlay.isOneHitKills())
 		{
-			if (!isFriendly)
-				currentHp -= 9999;
+			if (!entities.friendly[id])
+				entities.hp[id] -= 9999;
 		}
 		
-		currentHp -= delta;
-		if (currentHp <= 0)
+		entities.hp[id] -= delta;
+		if (entities.hp[id] <= 0)
 		{
-			currentHp = 0;
-			alive = false;
+			entities.hp[id] = 0;
+			entities.alive[id] = false;
 			sprite.setLoopAnim(false);
-			sprite.setAnimationFrame(direction*43 + 30, direction*43 + 42);
+			sprite.setAnimationFrame(type.getFirstFrame(UnitType.DEATH, direction), type.getLastFrame(UnitType.DEATH, direction));
 			gamePlay.playSound("Sounds/Effects/death.wav");
-			state = DEAD;
+			entities.state[id] = DEAD;
 			
 			if (selected)
 			{
@@ -722,16 +1054,16 @@ public class Unit
 			}
 		}
 		
-		if (currentHp >= maxHp)
-			currentHp = maxHp;
+		if (entities.hp[id] >= entities.maxHp[id])
+			entities.hp[id] = entities.maxHp[id];
 	}
 	
 	// calcDamage()
 	// calculates and returns the amount of damage the unit should do to it's target
 	public int calcDamage()
 	{
-		int damage = power;
-		float reduction = (float)power*(float)target.getArmor()/(float)100;
+		int damage = entities.power[id];
+		float reduction = (float)entities.power[id]*(float)target.getArmor()/(float)100;
 		damage -= reduction;
 		return damage;
 	}
@@ -743,8 +1075,8 @@ public class Unit
 		if (targ == null)
 			return -1;
 		
-		double dx = sprite.getX() + (SIZE/2) - (targ.sprite.getX() + (SIZE/2));
-		double dy = sprite.getY() + (SIZE/2) - (targ.sprite.getY() + (SIZE/2));
+		double dx = getX() + (SIZE/2) - (targ.getX() + (SIZE/2));
+		double dy = getY() + (SIZE/2) - (targ.getY() + (SIZE/2));
 		
 		return (int)Math.sqrt(dx*dx + dy*dy);
 	}
@@ -753,68 +1085,30 @@ public class Unit
 	// returns the distance between the unit and the specified location
 	public int distanceFromPoint(int x, int y)
 	{
-		double dx = sprite.getX() + (SIZE/2) - x;
-		double dy = sprite.getY() + (SIZE/2) - y;
+		double dx = getX() + (SIZE/2) - x;
+		double dy = getY() + (SIZE/2) - y;
 		
 		return (int)Math.sqrt(dx*dx + dy*dy);
 	}
 	
 	// attackProximityEnemy()
-	// Rinds a nearby enemy to attack if possible.  Returns true if an enemy is found, false otherwise.
+	// Finds a nearby enemy to attack if possible.  Returns true if an enemy is found, false otherwise.
 	private boolean attackProximityEnemy()
 	{
-		int closest = 0;
+		// friendly units look for enemy units, enemy units search for friendly units
+		UnitGrid enemies;
+		if (entities.friendly[id])
+			enemies = gamePlay.getEnemyGrid();
+		else
+			enemies = gamePlay.getFriendlyGrid();
 		
-		// friendly units look for enemy units
-		if (isFriendly == true)
-		{
-			for (int i = 0; i < gamePlay.getNumEnemyUnits(); i++)
-			{
-				// ignore dead units
-				if (!gamePlay.enemyUnits[i].isAlive())
-					continue;
-				
-				int dist = distanceFromTarget(gamePlay.enemyUnits[i]);
-				
-				if (dist < closest || closest == 0)
-				{
-					closest = dist;
-					target = gamePlay.enemyUnits[i];
-				}
-			}
-			
-			// If the closest unit is in sight, attack it
-			if (closest < SIGHT_RADIUS && closest != 0)
-			{
-				attack(target);
-				return true;
-			}
-		}
+		Unit closest = enemies.findNearest(getX() + SIZE/2, getY() + SIZE/2, SIGHT_RADIUS);
 		
-		// enemy units search for friendly units
-		else
+		// If the closest unit is in sight, attack it
+		if (closest != null)
 		{
-			for (int i = 0; i < gamePlay.getNumFriendlyUnits(); i++)
-			{
-				// ignore dead units
-				if (!gamePlay.friendlyUnits[i].isAlive())
-					continue;
-				
-				int dist = distanceFromTarget(gamePlay.friendlyUnits[i]);
-				
-				if (dist < closest || closest == 0)
-				{
-					closest = dist;
-					target = gamePlay.friendlyUnits[i];
-				}
-			}
-			
-//			 If the closest unit is in sight, attack it
-			if (closest < SIGHT_RADIUS && closest != 0)
-			{
-				attack(target);
-				return true;
-			}				
+			attack(closest);
+			return true;
 		}
 		
 		return false;
@@ -829,29 +1123,52 @@ public class Unit
 		return selected;
 	}
 	
+	// returns the unit's entity in the game's EntityStore, which is also its sprite ID
+	public int getEntity()
+	{
+		return id;
+	}
+	
+	// returns the x coordinate of the unit's sprite's top left corner
+	public double getX()
+	{
+		return entities.x[id];
+	}
+	
+	// returns the y coordinate of the unit's sprite's top left corner
+	public double getY()
+	{
+		return entities.y[id];
+	}
+	
 	public int getMaxHp()
 	{
-		return maxHp;
+		return entities.maxHp[id];
 	}
 	
 	public int getCurrentHp()
 	{
-		return currentHp;
+		return entities.hp[id];
 	}
 	
 	public int getType()
+	{
+		return type.getId();
+	}
+	
+	public UnitType getUnitType()
 	{
 		return type;
 	}
 	
 	public boolean isAlive()
 	{
-		return alive;
+		return entities.alive[id];
 	}
 	
 	public int getState()
 	{
-		return state;
+		return entities.state[id];
 	}
 	
 	public Point getDestination()
@@ -861,7 +1178,7 @@ public class Unit
 	
 	public boolean isSwinging()
 	{
-		return swinging;
+		return entities.swinging[id];
 	}
 	
 	public boolean isStandingGround()
@@ -871,31 +1188,99 @@ public class Unit
 	
 	public int getSpecialType()
 	{
-		return specialType;
+		return entities.specialType[id];
 	}
 	
 	public int getCooldown()
 	{
-		return specialCooldown;
+		return entities.specialCooldown[id];
 	}
 	
 	public int getArmor()
 	{
-		return armor;
+		return type.getArmor();
 	}
 	
 	public int getPower()
 	{
-		return power;
+		return entities.power[id];
 	}
 	
 	public String getRange()
 	{
-		return range;
+		return type.getRange();
+	}
+	
+	// returns the unit's speed in pixels per millisecond
+	public double getSpeed()
+	{
+		return type.getSpeed();
+	}
+	
+	public int getGridCell()
+	{
+		return gridCell;
+	}
+	
+	public void setGridCell(int cell)
+	{
+		gridCell = cell;
+	}
+	
+	public int getFogCell()
+	{
+		return fogCell;
+	}
+	
+	public void setFogCell(int cell)
+	{
+		fogCell = cell;
+	}
+	
+	public boolean isSteering()
+	{
+		return entities.steering[id];
+	}
+	
+	// returns true if the unit is squeezing through a crowd and ignores other units
+	public boolean isSqueezing()
+	{
+		return entities.squeezeTicks[id] > 0;
+	}
+	
+	public double getPreferredX()
+	{
+		return entities.preferredX[id];
+	}
+	
+	public double getPreferredY()
+	{
+		return entities.preferredY[id];
+	}
+	
+	public double getMaxStep()
+	{
+		return entities.maxStep[id];
+	}
+	
+	public double getVelocityX()
+	{
+		return entities.velocityX[id];
+	}
+	
+	public double getVelocityY()
+	{
+		return entities.velocityY[id];
+	}
+	
+	public void setVelocity(double x, double y)
+	{
+		entities.velocityX[id] = x;
+		entities.velocityY[id] = y;
 	}
 	
 	public void doublePower()
 	{
-		power *= 2;
+		entities.power[id] *= 2;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,206 @@
+/*
+ * Name of code: UnitGrid.java
+ * Description:  Uniform grid of living units, bucketed by the cell their center is in.
+ *				 Units are moved between buckets as they cross cell boundaries, so
+ *				 nearest-unit searches only look at the handful of cells around a point
+ *				 instead of every unit on the map.  Each bucket keeps its units' entities
+ *				 and centers in parallel arrays, brought up to date whenever a unit is
+ *				 updated.  A search copies the centers from every cell in range into one
+ *				 batch and runs the UnitKernels over it once, without touching the units
+ *				 themselves.  A cell only holds a few units, too few to fill a vector on
+ *				 their own.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.util.Arrays;
+
+public class UnitGrid
+{
+	// constants
+	public static final int CELL_SIZE = 192;
+	public static final int CELLS = Map.SIZE / CELL_SIZE;
+
+	private EntityStore entities;
+	private UnitKernels kernels;
+
+	// the entities in each cell and their centers
+	private int cells[][];
+	private double centerX[][];
+	private double centerY[][];
+	private int cellCounts[];
+
+	// where each entity is in its cell's arrays
+	private int slots[];
+
+	// the entities and centers gathered for a search
+	private int nearby[];
+	private double nearbyX[];
+	private double nearbyY[];
+
+	// UnitGrid() - class constructor
+	public UnitGrid(EntityStore entityStore, UnitKernels unitKernels)
+	{
+		entities = entityStore;
+		kernels = unitKernels;
+		cells = new int[CELLS*CELLS][];
+		centerX = new double[CELLS*CELLS][];
+		centerY = new double[CELLS*CELLS][];
+		cellCounts = new int[CELLS*CELLS];
+		slots = new int[EntityStore.INITIAL_CAPACITY];
+		nearby = new int[EntityStore.INITIAL_CAPACITY];
+		nearbyX = new double[EntityStore.INITIAL_CAPACITY];
+		nearbyY = new double[EntityStore.INITIAL_CAPACITY];
+	}
+
+	// add()
+	// Adds a unit to the bucket for its current position
+	public void add(Unit unit)
+	{
+		int cell = getCell(unit);
+		int count = cellCounts[cell];
+
+		if (cells[cell] == null)
+		{
+			cells[cell] = new int[4];
+			centerX[cell] = new double[4];
+			centerY[cell] = new double[4];
+		}
+		else if (count == cells[cell].length)
+		{
+			cells[cell] = Arrays.copyOf(cells[cell], count*2);
+			centerX[cell] = Arrays.copyOf(centerX[cell], count*2);
+			centerY[cell] = Arrays.copyOf(centerY[cell], count*2);
+		}
+
+		int entity = unit.getEntity();
+		if (entity >= slots.length)
+			slots = Arrays.copyOf(slots, Math.max(entity + 1, slots.length*2));
+
+		cells[cell][count] = entity;
+		slots[entity] = count;
+		cellCounts[cell]++;
+		unit.setGridCell(cell);
+		setCenter(unit);
+	}
+
+	// remove()
+	// Takes a unit out of the grid, if it is in it
+	public void remove(Unit unit)
+	{
+		int cell = unit.getGridCell();
+		if (cell < 0)
+			return;
+
+		// order within a bucket doesn't matter, so fill the gap with the last unit
+		int slot = slots[unit.getEntity()];
+		int last = --cellCounts[cell];
+
+		cells[cell][slot] = cells[cell][last];
+		centerX[cell][slot] = centerX[cell][last];
+		centerY[cell][slot] = centerY[cell][last];
+		slots[cells[cell][slot]] = slot;
+
+		unit.setGridCell(-1);
+	}
+
+	// update()
+	// Called after a unit moves.  Dead units are dropped from the grid, and living units
+	// only change buckets when they cross into a new cell.
+	public void update(Unit unit)
+	{
+		if (!unit.isAlive())
+		{
+			remove(unit);
+			return;
+		}
+
+		int cell = getCell(unit);
+		if (cell == unit.getGridCell())
+		{
+			setCenter(unit);
+			return;
+		}
+
+		remove(unit);
+		add(unit);
+	}
+
+	// findNearest()
+	// Returns the unit closest to x,y that is strictly within radius pixels, or null if
+	// there isn't one.  Units less than a pixel away are ignored, as they always have been.
+	// Cells are gathered in order, so of two units just as close the one in the earlier
+	// cell wins, as it did when cells were searched one at a time.
+	public Unit findNearest(double x, double y, int radius)
+	{
+		int minX = clamp((int)((x - radius) / CELL_SIZE));
+		int maxX = clamp((int)((x + radius) / CELL_SIZE));
+		int minY = clamp((int)((y - radius) / CELL_SIZE));
+		int maxY = clamp((int)((y + radius) / CELL_SIZE));
+
+		int count = 0;
+
+		for (int cy = minY; cy <= maxY; cy++)
+		{
+			for (int cx = minX; cx <= maxX; cx++)
+			{
+				int cell = cy*CELLS + cx;
+				int cellCount = cellCounts[cell];
+				if (cellCount == 0)
+					continue;
+
+				if (count + cellCount > nearby.length)
+				{
+					int length = Math.max(count + cellCount, nearby.length*2);
+					nearby = Arrays.copyOf(nearby, length);
+					nearbyX = Arrays.copyOf(nearbyX, length);
+					nearbyY = Arrays.copyOf(nearbyY, length);
+				}
+
+				System.arraycopy(cells[cell], 0, nearby, count, cellCount);
+				System.arraycopy(centerX[cell], 0, nearbyX, count, cellCount);
+				System.arraycopy(centerY[cell], 0, nearbyY, count, cellCount);
+				count += cellCount;
+			}
+		}
+
+		int closest = kernels.findNearest(nearbyX, nearbyY, count, x, y, (double)radius*radius);
+		if (closest < 0)
+			return null;
+
+		return entities.getUnit(nearby[closest]);
+	}
+
+	// setCenter()
+	// copies the center of a unit in the grid into its cell's arrays
+	private void setCenter(Unit unit)
+	{
+		int cell = unit.getGridCell();
+		int slot = slots[unit.getEntity()];
+
+		centerX[cell][slot] = unit.getX() + Unit.SIZE/2;
+		centerY[cell][slot] = unit.getY() + Unit.SIZE/2;
+	}
+
+	// getCell()
+	// returns the index of the cell containing the center of the unit
+	private int getCell(Unit unit)
+	{
+		int cx = clamp((int)((unit.getX() + Unit.SIZE/2) / CELL_SIZE));
+		int cy = clamp((int)((unit.getY() + Unit.SIZE/2) / CELL_SIZE));
+
+		return cy*CELLS + cx;
+	}
+
+	// clamp()
+	// keeps a cell coordinate on the map
+	private int clamp(int c)
+	{
+		if (c < 0)
+			return 0;
+		if (c >= CELLS)
+			return CELLS - 1;
+
+		return c;
+	}
+}
@@ -0,0 +1,23 @@
+/*
+ * Name of code: UnitKernels.java
+ * Description:  Interface for the distance math run over many units at once.  Points are
+ *				 given as parallel arrays of x and y (structure of arrays), so an
+ *				 implementation can work on several units per instruction.  ScalarKernels
+ *				 is the plain loop every JVM can run, and VectorKernels (Source/Vector)
+ *				 does the same work with SIMD instructions where the Vector API is there.
+ *				 Every implementation gives exactly the same answers.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+public interface UnitKernels
+{
+	// distances()
+	// Puts the squared distance from x,y to each of the first count points in out
+	public void distances(double xs[], double ys[], int count, double x, double y, double out[]);
+
+	// findNearest()
+	// Returns the index of the point closest to x,y whose squared distance is at least 1
+	// and less than limit, or -1 if there isn't one.  Ties go to the lowest index.
+	public int findNearest(double xs[], double ys[], int count, double x, double y, double limit);
+}
@@ -0,0 +1,71 @@
+/*
+ * Name of code: UnitPool.java
+ * Description:  Units that have left play, kept by type to be used again.  Making a unit
+ *				 allocates its sprite, animation timer, points and projectiles; a unit
+ *				 taken from the pool keeps all of those and is only reset for the game it
+ *				 joins (see Unit.init()).  RTS keeps the pool, so it outlives each
+ *				 GamePlay - a finished game hands its units back, and the next level or
+ *				 reloaded save takes them out again as it spawns its own.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class UnitPool
+{
+	// units waiting to be used again, by type
+	private HashMap<Integer, ArrayList<Unit>> free;
+	private int freeCount;
+
+	// UnitPool() - class constructor
+	public UnitPool()
+	{
+		free = new HashMap<Integer, ArrayList<Unit>>();
+	}
+
+	// obtain()
+	// Returns a unit of the given type put in the game, reusing one from the pool if
+	// there is one
+	public Unit obtain(GamePlay game, int type)
+	{
+		ArrayList<Unit> units = free.get(type);
+
+		if (units == null || units.isEmpty())
+			return new Unit(game, type);
+
+		Unit unit = units.remove(units.size() - 1);
+		freeCount--;
+		unit.init(game);
+
+		return unit;
+	}
+
+	// release()
+	// Hands a unit that has left play back to the pool.  Nothing may use the unit again
+	// until obtain() gives it out.
+	public void release(Unit unit)
+	{
+		ArrayList<Unit> units = free.get(unit.getType());
+
+		if (units == null)
+		{
+			units = new ArrayList<Unit>();
+			free.put(unit.getType(), units);
+		}
+
+		units.add(unit);
+		freeCount++;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	// returns the number of units waiting to be used again
+	public int getFreeCount()
+	{
+		return freeCount;
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ * Name of code: UnitType.java
+ * Description:  Everything that is the same for every unit of a type - its stats, sprite
+ *				 sheet and the frames of each animation on it, and the projectile and
+ *				 special ability it uses.  Types are read from FILE once, and every unit
+ *				 of a type shares the one UnitType, so a unit only holds what changes
+ *				 while it plays.  The sprite sheet is also loaded only once per type, the
+ *				 first time a unit of that type is made.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+
+public class UnitType
+{
+	// constants
+	public static final String FILE = "Data/units.txt";
+
+	// animations, each a run of frames on every row of the sprite sheet
+	public static final int IDLE = 0;
+	public static final int WALK = 1;
+	public static final int ATTACK = 2;
+	public static final int DEATH = 3;
+
+	// how long each frame of an animation is shown, in milliseconds
+	public static final int FRAME_TIME = 100;
+
+	private static final String animationNames[] = { "idle", "walk", "attack", "death" };
+
+	// projectile and special ability names in the file, and what they stand for
+	private static final String projectileNames[] = { "none", "arrow", "fireball" };
+	private static final int projectileTypes[] = { Unit.NONE, Projectile.ARROW, Projectile.FIREBALL };
+	private static final String specialNames[] = { "none", "heal", "lightning" };
+	private static final int specialTypes[] = { Unit.NONE, Unit.HEAL, Unit.LIGHTNING };
+	private static final int specialProjectiles[] = { Unit.NONE, Projectile.HEAL, Projectile.LIGHTNING };
+
+	// every type, by id
+	private static HashMap<Integer, UnitType> types;
+
+	private int id;
+	private String name;
+	private String imageFile;
+	private int columns;
+	private int rows;
+	private int firstFrames[];
+	private int lastFrames[];
+	private boolean friendly;
+	private int maxHp;
+	private double speed;
+	private int attackRange;
+	private int attackDelay;
+	private int power;
+	private int armor;
+	private String range;
+	private int projectile;
+	private int special;
+	private int specialProjectile;
+	private BufferedImage images[];
+
+	// UnitType() - class constructor
+	// Builds a type from the values in its section of the file
+	private UnitType(String typeName, HashMap<String, String> values) throws IOException
+	{
+		name = typeName;
+		id = getInt(values, "id");
+		imageFile = getValue(values, "image");
+		columns = getInt(values, "columns");
+		rows = getInt(values, "rows");
+		friendly = Boolean.parseBoolean(getValue(values, "friendly"));
+		maxHp = getInt(values, "hp");
+		speed = getDouble(values, "speed");
+		attackRange = getInt(values, "attackRange");
+		attackDelay = getInt(values, "attackDelay");
+		power = getInt(values, "power");
+		armor = getInt(values, "armor");
+		range = values.get("range");
+
+		firstFrames = new int[animationNames.length];
+		lastFrames = new int[animationNames.length];
+
+		for (int i = 0; i < animationNames.length; i++)
+		{
+			String frames[] = getValue(values, animationNames[i]).split("\\s+");
+			if (frames.length != 2)
+				throw new IOException(name + ": " + animationNames[i] + " needs a first and last frame");
+
+			firstFrames[i] = parseInt(frames[0], animationNames[i]);
+			lastFrames[i] = parseInt(frames[1], animationNames[i]);
+
+			if (firstFrames[i] < 0 || lastFrames[i] < firstFrames[i] || lastFrames[i] >= columns)
+				throw new IOException(name + ": " + animationNames[i] + " frames aren't on the sprite sheet");
+		}
+
+		int p = find(projectileNames, values.get("projectile"), "projectile");
+		projectile = projectileTypes[p];
+
+		int s = find(specialNames, values.get("special"), "special");
+		special = specialTypes[s];
+		specialProjectile = specialProjectiles[s];
+	}
+
+	// load()
+	// Reads the unit types from FILE, if they haven't been already.  Lines are a [Name]
+	// starting each type, or key = value.  Blank lines and lines starting with # are
+	// skipped.
+	public static void load() throws IOException
+	{
+		if (types != null)
+			return;
+
+		HashMap<Integer, UnitType> loaded = new HashMap<Integer, UnitType>();
+		BufferedReader infile = new BufferedReader(new FileReader(FILE));
+		String name = null;
+		HashMap<String, String> values = null;
+
+		try
+		{
+			String line;
+			while ((line = infile.readLine()) != null)
+			{
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#"))
+					continue;
+
+				if (line.startsWith("[") && line.endsWith("]"))
+				{
+					if (name != null)
+						add(loaded, new UnitType(name, values));
+
+					name = line.substring(1, line.length() - 1);
+					values = new HashMap<String, String>();
+					continue;
+				}
+
+				int equals = line.indexOf('=');
+				if (name == null || equals < 0)
+					throw new IOException(FILE + ": unexpected line \"" + line + "\"");
+
+				values.put(line.substring(0, equals).trim(), line.substring(equals + 1).trim());
+			}
+
+			if (name != null)
+				add(loaded, new UnitType(name, values));
+		}
+		finally
+		{
+			infile.close();
+		}
+
+		types = loaded;
+	}
+
+	// get()
+	// Returns the type with the given id.  Throws an IllegalArgumentException if there
+	// isn't one, or the types haven't been loaded.
+	public static UnitType get(int id)
+	{
+		UnitType type = null;
+		if (types != null)
+			type = types.get(id);
+
+		if (type == null)
+			throw new IllegalArgumentException("unknown unit type " + id);
+
+		return type;
+	}
+
+	// add()
+	// adds a type to the table, turning down a second type with the same id
+	private static void add(HashMap<Integer, UnitType> loaded, UnitType type) throws IOException
+	{
+		if (loaded.containsKey(type.id))
+			throw new IOException(FILE + ": " + type.name + " has the same id as " + loaded.get(type.id).name);
+
+		loaded.put(type.id, type);
+	}
+
+	// getValue()
+	// returns a value the type has to have
+	private String getValue(HashMap<String, String> values, String key) throws IOException
+	{
+		String value = values.get(key);
+		if (value == null)
+			throw new IOException(FILE + ": " + name + " has no " + key);
+
+		return value;
+	}
+
+	// getInt()
+	// returns a whole number value the type has to have
+	private int getInt(HashMap<String, String> values, String key) throws IOException
+	{
+		return parseInt(getValue(values, key), key);
+	}
+
+	// getDouble()
+	// returns a number value the type has to have
+	private double getDouble(HashMap<String, String> values, String key) throws IOException
+	{
+		try
+		{
+			return Double.parseDouble(getValue(values, key));
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException(FILE + ": " + name + "'s " + key + " isn't a number");
+		}
+	}
+
+	// parseInt()
+	// reads a whole number given for key
+	private int parseInt(String value, String key) throws IOException
+	{
+		try
+		{
+			return Integer.parseInt(value);
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException(FILE + ": " + name + "'s " + key + " isn't a whole number");
+		}
+	}
+
+	// find()
+	// returns the index of value in names, or 0 (none) if it wasn't given
+	private int find(String names[], String value, String key) throws IOException
+	{
+		if (value == null)
+			return 0;
+
+		for (int i = 0; i < names.length; i++)
+			if (names[i].equals(value))
+				return i;
+
+		throw new IOException(FILE + ": " + name + " has an unknown " + key + " \"" + value + "\"");
+	}
+
+	// getImages()
+	// Returns the frames of the type's sprite sheet, loading them the first time
+	public BufferedImage[] getImages(GamePlay gamePlay)
+	{
+		if (images == null)
+			images = gamePlay.getImages(imageFile, columns, rows);
+
+		return images;
+	}
+
+	// getFirstFrame()
+	// returns the first frame of an animation facing a direction
+	public int getFirstFrame(int animation, int direction)
+	{
+		return direction*columns + firstFrames[animation];
+	}
+
+	// getLastFrame()
+	// returns the last frame of an animation facing a direction
+	public int getLastFrame(int animation, int direction)
+	{
+		return direction*columns + lastFrames[animation];
+	}
+
+	// getSwingTime()
+	// Returns how long the attack animation takes to reach its last frame, in
+	// milliseconds.  Attacks and specials land then, so the damage stays in step with
+	// the attack frames given for the type.
+	public int getSwingTime()
+	{
+		return (lastFrames[ATTACK] - firstFrames[ATTACK])*FRAME_TIME;
+	}
+
+	// ******
+	// Getters
+	// ******
+
+	public int getId()
+	{
+		return id;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public boolean isFriendly()
+	{
+		return friendly;
+	}
+
+	// returns the hit points of the type before difficulty is taken into account
+	public int getMaxHp()
+	{
+		return maxHp;
+	}
+
+	// returns the type's speed in pixels per millisecond
+	public double getSpeed()
+	{
+		return speed;
+	}
+
+	public int getAttackRange()
+	{
+		return attackRange;
+	}
+
+	public int getAttackDelay()
+	{
+		return attackDelay;
+	}
+
+	public int getPower()
+	{
+		return power;
+	}
+
+	public int getArmor()
+	{
+		return armor;
+	}
+
+	public String getRange()
+	{
+		return range;
+	}
+
+	// returns the Projectile type the unit attacks with, or Unit.NONE for melee units
+	public int getProjectile()
+	{
+		return projectile;
+	}
+
+	// returns Unit.HEAL, Unit.LIGHTNING or Unit.NONE
+	public int getSpecial()
+	{
+		return special;
+	}
+
+	// returns the Projectile type of the special ability, or Unit.NONE
+	public int getSpecialProjectile()
+	{
+		return specialProjectile;
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Name of code: VectorKernels.java
+ * Description:  UnitKernels using SIMD instructions through the Vector API, as many
+ *				 points per instruction as the CPU's preferred vector holds.  The Vector
+ *				 API is still an incubator module, so this class is kept out of the rest
+ *				 of the source and has to be compiled and run with
+ *				 --add-modules jdk.incubator.vector.  GamePlay loads it by name and uses
+ *				 ScalarKernels when it isn't there.  Each lane does the same multiplies
+ *				 and adds as the scalar loop, so the answers are exactly the same.
+ * Programmer:	 agent
+ * Date of last modification: 10/18/26
+ */
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+public class VectorKernels implements UnitKernels
+{
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	// nearest point searches over fewer points than this are quicker one at a time, as
+	// finding the lane and index of the closest costs as much as a few dozen points
+	public static final int MIN_VECTOR_POINTS = 32;
+
+	// distances()
+	// Puts the squared distance from x,y to each of the first count points in out
+	public void distances(double xs[], double ys[], int count, double x, double y, double out[])
+	{
+		DoubleVector px = DoubleVector.broadcast(SPECIES, x);
+		DoubleVector py = DoubleVector.broadcast(SPECIES, y);
+		int bound = SPECIES.loopBound(count);
+
+		for (int i = 0; i < bound; i += SPECIES.length())
+			distance(xs, ys, i, px, py).intoArray(out, i);
+
+		for (int i = bound; i < count; i++)
+		{
+			double dx = xs[i] - x;
+			double dy = ys[i] - y;
+			out[i] = dx*dx + dy*dy;
+		}
+	}
+
+	// findNearest()
+	// Returns the index of the point closest to x,y whose squared distance is at least 1
+	// and less than limit, or -1 if there isn't one.  Ties go to the lowest index.
+	public int findNearest(double xs[], double ys[], int count, double x, double y, double limit)
+	{
+		if (count < Math.max(MIN_VECTOR_POINTS, SPECIES.length()))
+			return findNearest(xs, ys, 0, count, x, y, limit, -1);
+
+		DoubleVector px = DoubleVector.broadcast(SPECIES, x);
+		DoubleVector py = DoubleVector.broadcast(SPECIES, y);
+		DoubleVector best = DoubleVector.broadcast(SPECIES, limit);
+		int bound = SPECIES.loopBound(count);
+
+		// each lane keeps the closest distance it has seen
+		for (int i = 0; i < bound; i += SPECIES.length())
+		{
+			DoubleVector dist = distance(xs, ys, i, px, py);
+			best = best.blend(dist, dist.lt(best).and(dist.compare(VectorOperators.GE, 1)));
+		}
+
+		double closestDistance = best.reduceLanes(VectorOperators.MIN);
+		int closest = -1;
+
+		// then the first point that close is the answer.  The distance came from a point
+		// that was at least 1 away, so any point at exactly that distance was too.
+		if (closestDistance < limit)
+		{
+			for (int i = 0; closest < 0; i += SPECIES.length())
+			{
+				VectorMask<Double> same = distance(xs, ys, i, px, py).compare(VectorOperators.EQ, closestDistance);
+				if (same.anyTrue())
+					closest = i + same.firstTrue();
+			}
+		}
+
+		// a leftover point only wins if it is strictly closer, as it comes later
+		return findNearest(xs, ys, bound, count, x, y, closestDistance, closest);
+	}
+
+	// findNearest()
+	// Carries a search on over points first up to end one at a time, starting from the
+	// closest point found so far and its distance
+	private static int findNearest(double xs[], double ys[], int first, int end, double x, double y, double closestDistance, int closest)
+	{
+		for (int i = first; i < end; i++)
+		{
+			double dx = xs[i] - x;
+			double dy = ys[i] - y;
+			double dist = dx*dx + dy*dy;
+
+			if (dist < closestDistance && dist >= 1)
+			{
+				closest = i;
+				closestDistance = dist;
+			}
+		}
+
+		return closest;
+	}
+
+	// distance()
+	// returns the squared distances from px,py to the points starting at index i
+	private static DoubleVector distance(double xs[], double ys[], int i, DoubleVector px, DoubleVector py)
+	{
+		DoubleVector dx = DoubleVector.fromArray(SPECIES, xs, i).sub(px);
+		DoubleVector dy = DoubleVector.fromArray(SPECIES, ys, i).sub(py);
+
+		return dx.mul(dx).add(dy.mul(dy));
+	}
+}